@@ -0,0 +1,383 @@
+package Benchmark;
+
+import Logistics.AlternativeRoute;
+import Logistics.LogisticsManager;
+import Logistics.RoadGraph;
+import Logistics.SearchMode;
+import Logistics.ShortestPathTree;
+import Logistics.TimedRoute;
+import Logistics.TravelTimeProfile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// Randomized cross-checks of the routing algorithms against plain
+// references on small random networks:
+//   - contraction hierarchy distances and unpacked routes vs Dijkstra
+//   - trees of registered sources, repaired after each edit, vs Dijkstra
+//   - alternative routes (lazy Yen) vs every simple path found by brute force
+//   - travel time profile interpolation vs a scan over the segments
+//   - departure-time routing vs a label-correcting search
+// Throws on the first disagreement. Usage: AlgorithmSelfCheck [rounds] [seed]
+public class AlgorithmSelfCheck {
+    private static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private final Random random;
+
+    private AlgorithmSelfCheck(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : SyntheticData.DEFAULT_SEED;
+
+        AlgorithmSelfCheck check = new AlgorithmSelfCheck(seed);
+        for (int round = 0; round < rounds; round++) {
+            check.contractionHierarchy();
+            check.registeredSources();
+            check.alternativeRoutes();
+            check.profiles();
+            check.departureRouting();
+        }
+        System.out.println("All checks passed: " + rounds + " rounds, seed " + seed);
+    }
+
+    private void contractionHierarchy() {
+        // Some networks get roads long enough for shortcuts to pass Integer.MAX_VALUE
+        int maxLength = random.nextInt(4) == 0 ? Integer.MAX_VALUE - 1 : 100;
+        LogisticsManager manager = randomNetwork(2 + random.nextInt(30), maxLength);
+        manager.prepareContractionHierarchy();
+        RoadGraph graph = manager.getGraph();
+
+        for (int source = 0; source < graph.size(); source++) {
+            long[] expected = dijkstra(graph, source);
+            for (int target = 0; target < graph.size(); target++) {
+                String from = graph.nameOf(source);
+                String to = graph.nameOf(target);
+                long distance = manager.getShortestDistance(from, to, SearchMode.CONTRACTION_HIERARCHY);
+                check(distance == orMinusOne(expected[target]),
+                      "Hierarchy distance " + from + " -> " + to + " is " + distance + ", expected " + expected[target]);
+                if (source != target && expected[target] != UNREACHABLE) {
+                    List<String> path = manager.findShortestPath(from, to, SearchMode.CONTRACTION_HIERARCHY);
+                    check(routeLength(graph, path, from, to) == expected[target],
+                          "Hierarchy route " + path + " doesn't have length " + expected[target]);
+                }
+            }
+        }
+    }
+
+    private void registeredSources() {
+        int size = 5 + random.nextInt(25);
+        LogisticsManager manager = randomNetwork(size, 50);
+        List<String> names = new ArrayList<>(manager.getAllLocationNames());
+        Collections.sort(names);
+        List<String> sources = new ArrayList<>(names.subList(0, 3));
+        for (String source : sources) {
+            manager.registerSource(source);
+        }
+
+        for (int edit = 0; edit < 40; edit++) {
+            String a = names.get(random.nextInt(names.size()));
+            String b = names.get(random.nextInt(names.size()));
+            int kind = random.nextInt(10);
+            if (a.equals(b)) {
+                continue;
+            } else if (kind < 4 && hasRoad(manager.getGraph(), a, b)) {
+                manager.updateRoadDistance(a, b, 1 + random.nextInt(60));
+            } else if (kind < 6 && hasRoad(manager.getGraph(), a, b)) {
+                manager.deleteRoad(a, b);
+            } else if (kind < 8) {
+                manager.addRoad(a, b, 1 + random.nextInt(60));
+            } else if (kind < 9) {
+                String added = "X" + edit;
+                manager.batch(() -> {
+                    manager.addLocation(added);
+                    manager.addRoad(added, a, 1 + random.nextInt(60));
+                });
+                names.add(added);
+            } else if (!sources.contains(a)) {
+                manager.deleteLocation(a);
+                names.remove(a);
+            }
+
+            RoadGraph graph = manager.getGraph();
+            for (String source : sources) {
+                long[] expected = dijkstra(graph, graph.idOf(source));
+                ShortestPathTree tree = manager.getShortestPathTree(source);
+                for (int target = 0; target < graph.size(); target++) {
+                    String to = graph.nameOf(target);
+                    check(tree.getDistance(to) == orMinusOne(expected[target]),
+                          "Tree of " + source + " has " + tree.getDistance(to) + " to " + to +
+                          " after edit " + edit + ", expected " + expected[target]);
+                    if (target != graph.idOf(source) && expected[target] != UNREACHABLE) {
+                        check(routeLength(graph, tree.getPath(to), source, to) == expected[target],
+                              "Tree route " + tree.getPath(to) + " doesn't have length " + expected[target]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void alternativeRoutes() {
+        // Small enough to list every simple path, short roads give many ties
+        LogisticsManager manager = randomNetwork(2 + random.nextInt(9), random.nextBoolean() ? 3 : 30);
+        RoadGraph graph = manager.getGraph();
+        int source = random.nextInt(graph.size());
+        int target = random.nextInt(graph.size());
+        if (source == target) {
+            return;
+        }
+        List<Long> expected = new ArrayList<>();
+        boolean[] onPath = new boolean[graph.size()];
+        onPath[source] = true;
+        simplePaths(graph, source, target, onPath, 0, expected);
+        Collections.sort(expected);
+
+        int k = 1 + random.nextInt(12);
+        String from = graph.nameOf(source);
+        String to = graph.nameOf(target);
+        List<AlternativeRoute> routes = manager.findAlternativeRoutes(from, to, k);
+        check(routes.size() == Math.min(k, expected.size()),
+              routes.size() + " alternative routes " + from + " -> " + to + ", expected " + Math.min(k, expected.size()));
+        Set<List<String>> seen = new HashSet<>();
+        for (int i = 0; i < routes.size(); i++) {
+            List<String> path = routes.get(i).getPath();
+            check(routes.get(i).getDistance() == expected.get(i),
+                  "Alternative " + i + " " + path + " has length " + routes.get(i).getDistance() +
+                  ", expected " + expected.get(i));
+            check(seen.add(path) && new HashSet<>(path).size() == path.size(),
+                  "Alternative " + path + " repeats a route or a location");
+            check(routeLength(graph, path, from, to) == expected.get(i),
+                  "Alternative " + path + " doesn't have length " + expected.get(i));
+        }
+    }
+
+    private void profiles() {
+        int[][] points = randomPoints();
+        TravelTimeProfile profile = new TravelTimeProfile(points[0], points[1]);
+        for (int sample = 0; sample < 50; sample++) {
+            long departure = random.nextInt(3 * TravelTimeProfile.DAY) - TravelTimeProfile.DAY;
+            long expected = interpolate(points, departure);
+            check(profile.travelTime(departure) == expected,
+                  "Profile gives " + profile.travelTime(departure) + " at " + departure + ", expected " + expected);
+        }
+    }
+
+    private void departureRouting() {
+        LogisticsManager manager = randomNetwork(2 + random.nextInt(12), 50);
+        RoadGraph graph = manager.getGraph();
+        Map<Integer, int[][]> profiles = new HashMap<>();
+        for (int id = 0; id < graph.size(); id++) {
+            for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                if (random.nextInt(3) > 0) {
+                    int[][] points = randomPoints();
+                    manager.setTravelTimeProfile(graph.nameOf(id), graph.nameOf(graph.target(edge)),
+                                                 new TravelTimeProfile(points[0], points[1]));
+                    profiles.put(edge, points);
+                }
+            }
+        }
+        // Profiles don't change the roads, so edge numbers still hold
+        graph = manager.getGraph();
+
+        int source = random.nextInt(graph.size());
+        long departure = random.nextInt(3 * TravelTimeProfile.DAY);
+        long[] arrivals = new long[graph.size()];
+        Arrays.fill(arrivals, UNREACHABLE);
+        arrivals[source] = departure;
+        // Label-correcting: relax every road until no arrival improves
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int id = 0; id < graph.size(); id++) {
+                if (arrivals[id] == UNREACHABLE) {
+                    continue;
+                }
+                for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                    long arrival = arrivals[id] + travelTime(graph, profiles, edge, arrivals[id], manager.getFreeFlowSpeed());
+                    if (arrival < arrivals[graph.target(edge)]) {
+                        arrivals[graph.target(edge)] = arrival;
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        for (int target = 0; target < graph.size(); target++) {
+            if (target == source) {
+                continue;
+            }
+            TimedRoute route = manager.findFastestRoute(graph.nameOf(source), graph.nameOf(target), departure);
+            long arrival = route == null ? UNREACHABLE : route.getArrivalTime();
+            check(arrival == arrivals[target], "Arrival at " + graph.nameOf(target) + " is " + arrival +
+                                               ", expected " + arrivals[target]);
+            if (route != null) {
+                // Driving the route must arrive when the search says
+                long time = departure;
+                List<String> path = route.getPath();
+                for (int i = 0; i + 1 < path.size(); i++) {
+                    int edge = edgeBetween(graph, graph.idOf(path.get(i)), graph.idOf(path.get(i + 1)));
+                    time += travelTime(graph, profiles, edge, time, manager.getFreeFlowSpeed());
+                }
+                check(time == arrival, "Driving " + path + " arrives at " + time + ", not " + arrival);
+            }
+        }
+    }
+
+    // Locations L0.. with about two random roads each, not always connected
+    private LogisticsManager randomNetwork(int size, int maxLength) {
+        LogisticsManager manager = new LogisticsManager(0);
+        manager.batch(() -> {
+            for (int i = 0; i < size; i++) {
+                manager.addLocation("L" + i);
+            }
+            for (int i = 0; i < 2 * size; i++) {
+                int a = random.nextInt(size);
+                int b = random.nextInt(size);
+                if (a != b) {
+                    manager.addRoad("L" + a, "L" + b, 1 + random.nextInt(maxLength));
+                }
+            }
+        });
+        return manager;
+    }
+
+    // Departure and travel times of a FIFO profile with 1-5 points
+    private int[][] randomPoints() {
+        while (true) {
+            int count = 1 + random.nextInt(5);
+            int[] departures = random.ints(0, TravelTimeProfile.DAY).distinct().limit(count).sorted().toArray();
+            int[] travelTimes = random.ints(count, 60, 7200).toArray();
+            try {
+                new TravelTimeProfile(departures, travelTimes);
+                return new int[][] {departures, travelTimes};
+            } catch (IllegalArgumentException e) {
+                // Not FIFO, draw again
+            }
+        }
+    }
+
+    // Rounded-down straight line between the points around departure,
+    // found by trying every segment of the day and the one into the next day
+    private static long interpolate(int[][] points, long departure) {
+        int[] departures = points[0];
+        int[] travelTimes = points[1];
+        int count = departures.length;
+        long time = Math.floorMod(departure, (long) TravelTimeProfile.DAY);
+        for (int i = 0; i < count; i++) {
+            int next = (i + 1) % count;
+            long from = departures[i];
+            long to = departures[next] + (next == 0 ? (long) TravelTimeProfile.DAY : 0);
+            for (long shifted : new long[] {time, time + TravelTimeProfile.DAY}) {
+                if (shifted >= from && shifted < to) {
+                    return travelTimes[i] + Math.floorDiv((long) (travelTimes[next] - travelTimes[i]) * (shifted - from),
+                                                          to - from);
+                }
+            }
+        }
+        throw new IllegalStateException("No segment covers " + departure);
+    }
+
+    // Seconds along edge when leaving at departure: its profile, or its
+    // length at the free-flow speed rounded up
+    private static long travelTime(RoadGraph graph, Map<Integer, int[][]> profiles, int edge,
+                                   long departure, int freeFlowSpeed) {
+        int[][] points = profiles.get(edge);
+        if (points != null) {
+            return interpolate(points, departure);
+        }
+        return Math.max(1, (graph.weight(edge) * 3600L + freeFlowSpeed - 1) / freeFlowSpeed);
+    }
+
+    // Distances from source by textbook Dijkstra with a linear scan for the minimum
+    private static long[] dijkstra(RoadGraph graph, int source) {
+        long[] distances = new long[graph.size()];
+        boolean[] settled = new boolean[graph.size()];
+        Arrays.fill(distances, UNREACHABLE);
+        distances[source] = 0;
+        while (true) {
+            int current = -1;
+            for (int id = 0; id < graph.size(); id++) {
+                if (!settled[id] && distances[id] != UNREACHABLE &&
+                    (current < 0 || distances[id] < distances[current])) {
+                    current = id;
+                }
+            }
+            if (current < 0) {
+                return distances;
+            }
+            settled[current] = true;
+            for (int edge = graph.firstEdge(current); edge < graph.endEdge(current); edge++) {
+                int next = graph.target(edge);
+                distances[next] = Math.min(distances[next], distances[current] + graph.weight(edge));
+            }
+        }
+    }
+
+    // Adds the length of every path from id to target that doesn't visit a location twice
+    private static void simplePaths(RoadGraph graph, int id, int target, boolean[] onPath,
+                                    long distance, List<Long> lengths) {
+        if (id == target) {
+            lengths.add(distance);
+            return;
+        }
+        for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+            int next = graph.target(edge);
+            if (!onPath[next]) {
+                onPath[next] = true;
+                simplePaths(graph, next, target, onPath, distance + graph.weight(edge), lengths);
+                onPath[next] = false;
+            }
+        }
+    }
+
+    // Length of path, which must run from start to end along existing roads
+    private static long routeLength(RoadGraph graph, List<String> path, String start, String end) {
+        check(path != null && path.get(0).equals(start) && path.get(path.size() - 1).equals(end),
+              "Route " + path + " doesn't run from " + start + " to " + end);
+        long length = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            length += graph.weight(edgeBetween(graph, graph.idOf(path.get(i)), graph.idOf(path.get(i + 1))));
+        }
+        return length;
+    }
+
+    private static boolean hasRoad(RoadGraph graph, String from, String to) {
+        int fromId = graph.idOf(from);
+        int toId = graph.idOf(to);
+        for (int edge = graph.firstEdge(fromId); edge < graph.endEdge(fromId); edge++) {
+            if (graph.target(edge) == toId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int edgeBetween(RoadGraph graph, int from, int to) {
+        for (int edge = graph.firstEdge(from); edge < graph.endEdge(from); edge++) {
+            if (graph.target(edge) == to) {
+                return edge;
+            }
+        }
+        throw new IllegalStateException("No road between " + graph.nameOf(from) + " and " + graph.nameOf(to));
+    }
+
+    // Distances as the public API reports them
+    private static long orMinusOne(long distance) {
+        return distance == UNREACHABLE ? -1 : distance;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package Benchmark;
+
+import Utils.BinaryHeap;
+import Utils.DaryHeap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// BinaryHeap (arity 2) and 4-ary DaryHeap operations, with random keys from a fixed seed
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryHeapBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"2", "4"})
+    private int arity;
+
+    private Integer[] keys;
+    private DaryHeap<Integer> heap;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SyntheticData.DEFAULT_SEED);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+        }
+        heap = newHeap();
+        for (Integer key : keys) {
+            heap.insert(key);
+        }
+    }
+
+    // One insert and one extractMin on a heap that stays at size elements
+    @Benchmark
+    public Integer insertExtractMin() {
+        heap.insert(keys[next]);
+        next = next + 1 == size ? 0 : next + 1;
+        return heap.extractMin();
+    }
+
+    // Fills an empty heap with size keys and empties it again, as a route search does
+    @Benchmark
+    public void fillAndDrain(Blackhole blackhole) {
+        DaryHeap<Integer> fresh = newHeap();
+        for (Integer key : keys) {
+            fresh.insert(key);
+        }
+        while (!fresh.isEmpty()) {
+            blackhole.consume(fresh.extractMin());
+        }
+    }
+
+    // Same with the O(n) bulk construction instead of size inserts
+    @Benchmark
+    public void heapifyAndDrain(Blackhole blackhole) {
+        DaryHeap<Integer> fresh = arity == 2 ? new BinaryHeap<>(Arrays.asList(keys)) :
+                                  new DaryHeap<>(arity, Comparator.naturalOrder(), Arrays.asList(keys));
+        while (!fresh.isEmpty()) {
+            blackhole.consume(fresh.extractMin());
+        }
+    }
+
+    private DaryHeap<Integer> newHeap() {
+        return arity == 2 ? new BinaryHeap<>() : new DaryHeap<>(arity, Comparator.naturalOrder());
+    }
+}
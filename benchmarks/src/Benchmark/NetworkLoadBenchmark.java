@@ -0,0 +1,59 @@
+package Benchmark;
+
+import Logistics.LogisticsManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Parsing throughput of loadLogisticsFromFile: one whole file per operation.
+// Divide the file size printed at setup by the time for MB/s.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NetworkLoadBenchmark {
+    @Param({"grid", "random"})
+    private String shape;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int locations;
+
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("network", ".txt");
+        if (!SyntheticData.writeNetwork(ShortestPathBenchmark.network(shape, locations), file.toString())) {
+            throw new IOException("Couldn't write " + file);
+        }
+        System.out.println("Network file: " + Files.size(file) + " bytes");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public LogisticsManager loadLogisticsFromFile() {
+        LogisticsManager manager = new LogisticsManager(0);
+        manager.loadLogisticsFromFile(file.toString());
+        return manager;
+    }
+}
@@ -0,0 +1,98 @@
+package Benchmark;
+
+import Logistics.LogisticsManager;
+import Logistics.SearchMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// findShortestPath between random locations of a synthetic network.
+// The route cache is off, so every call is a real search. The contraction
+// hierarchy is built in setup, so only its queries are measured.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ShortestPathBenchmark {
+    // Queries cycled through; a power of two
+    private static final int QUERIES = 1024;
+
+    @Param({"grid", "random"})
+    private String shape;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int locations;
+
+    @Param({"DIJKSTRA", "BIDIRECTIONAL", "ASTAR", "CONTRACTION_HIERARCHY"})
+    private SearchMode mode;
+
+    private LogisticsManager manager;
+    private String[] starts;
+    private String[] ends;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        manager = load(network(shape, locations));
+        if (mode == SearchMode.CONTRACTION_HIERARCHY) {
+            manager.prepareContractionHierarchy();
+        }
+        Random random = new Random(SyntheticData.DEFAULT_SEED);
+        int size = manager.getGraph().size();
+        starts = new String[QUERIES];
+        ends = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = SyntheticData.name(random.nextInt(size));
+            ends[i] = SyntheticData.name(random.nextInt(size));
+        }
+    }
+
+    @Benchmark
+    public List<String> findShortestPath() {
+        int query = next++ & (QUERIES - 1);
+        return manager.findShortestPath(starts[query], ends[query], mode);
+    }
+
+    static SyntheticData.Network network(String shape, int locations) {
+        switch (shape) {
+            case "grid":
+                return SyntheticData.grid((int) Math.sqrt(locations), SyntheticData.DEFAULT_SEED);
+            case "random":
+                return SyntheticData.random(locations, SyntheticData.DEFAULT_SEED);
+            default:
+                throw new IllegalArgumentException("Unknown network shape: " + shape);
+        }
+    }
+
+    // Goes through the network file, which is quicker than one addRoad per road
+    private static LogisticsManager load(SyntheticData.Network network) throws IOException {
+        Path file = Files.createTempFile("network", ".txt");
+        try {
+            if (!SyntheticData.writeNetwork(network, file.toString())) {
+                throw new IOException("Couldn't write " + file);
+            }
+            LogisticsManager loaded = new LogisticsManager(0);
+            loaded.loadLogisticsFromFile(file.toString());
+            return loaded;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
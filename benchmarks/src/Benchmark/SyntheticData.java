@@ -0,0 +1,224 @@
+package Benchmark;
+
+import Logistics.LogisticsManager;
+import Utils.FileHandler;
+import Warehouse.WarehouseManager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+// Reproducible test data for the benchmarks: the same kind, size and seed
+// always give the same network or inventory, so timings from different
+// builds compare like for like.
+//   grid    square grid, every location connected to its neighbours
+//   random  random spanning tree plus random extra roads, always connected
+// Usage: SyntheticData grid|random|inventory <size> <file> [seed]
+public final class SyntheticData {
+    public static final long DEFAULT_SEED = 42;
+    // Extra roads per location in a random network, on top of the spanning tree
+    private static final int RANDOM_EXTRA_ROADS = 2;
+    private static final int MAX_DISTANCE = 100;
+    private static final int MAX_PRIORITY = 10;
+    private static final int MAX_QUANTITY = 1000;
+
+    private SyntheticData() {
+    }
+
+    // Roads as parallel arrays; location i is called name(i)
+    public static final class Network {
+        private final int size;
+        private final int[] from;
+        private final int[] to;
+        private final int[] distance;
+
+        Network(int size, int[] from, int[] to, int[] distance) {
+            this.size = size;
+            this.from = from;
+            this.to = to;
+            this.distance = distance;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int roadCount() {
+            return from.length;
+        }
+    }
+
+    public static String name(int id) {
+        return "City-" + id;
+    }
+
+    // Square grid of side * side locations with random road lengths
+    public static Network grid(int side, long seed) {
+        Random random = new Random(seed);
+        int roads = 2 * side * (side - 1);
+        int[] from = new int[roads];
+        int[] to = new int[roads];
+        int[] distance = new int[roads];
+        int road = 0;
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int id = row * side + col;
+                if (col + 1 < side) {
+                    from[road] = id;
+                    to[road] = id + 1;
+                    distance[road++] = 1 + random.nextInt(MAX_DISTANCE);
+                }
+                if (row + 1 < side) {
+                    from[road] = id;
+                    to[road] = id + side;
+                    distance[road++] = 1 + random.nextInt(MAX_DISTANCE);
+                }
+            }
+        }
+        return new Network(side * side, from, to, distance);
+    }
+
+    // Connected network of size locations: each location joins a random
+    // earlier one, then random pairs get extra roads. Pairs that are already
+    // connected or the same location are skipped, so the count is approximate.
+    public static Network random(int size, long seed) {
+        Random random = new Random(seed);
+        int capacity = (size - 1) + size * RANDOM_EXTRA_ROADS;
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        int[] distance = new int[capacity];
+        Set<Long> seen = new HashSet<>();
+        int road = 0;
+        for (int id = 1; id < size; id++) {
+            int other = random.nextInt(id);
+            seen.add(pair(id, other));
+            from[road] = other;
+            to[road] = id;
+            distance[road++] = 1 + random.nextInt(MAX_DISTANCE);
+        }
+        for (int i = 0; i < size * RANDOM_EXTRA_ROADS; i++) {
+            int a = random.nextInt(size);
+            int b = random.nextInt(size);
+            int length = 1 + random.nextInt(MAX_DISTANCE);
+            if (a == b || !seen.add(pair(a, b))) {
+                continue;
+            }
+            from[road] = a;
+            to[road] = b;
+            distance[road++] = length;
+        }
+        return new Network(size, Arrays.copyOf(from, road),
+                           Arrays.copyOf(to, road), Arrays.copyOf(distance, road));
+    }
+
+    private static long pair(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    // Manager holding the network; a cache capacity of 0 times every query for real
+    public static LogisticsManager build(Network network, int routeCacheCapacity) {
+        LogisticsManager manager = new LogisticsManager(routeCacheCapacity);
+        // One snapshot for the whole network instead of one per edit
+        manager.batch(() -> {
+            for (int i = 0; i < network.size; i++) {
+                manager.addLocation(name(i));
+            }
+            for (int road = 0; road < network.from.length; road++) {
+                manager.addRoad(name(network.from[road]), name(network.to[road]), network.distance[road]);
+            }
+        });
+        return manager;
+    }
+
+    // Writes the network in the format loadLogisticsFromFile reads,
+    // every road listed under both of its ends
+    public static boolean writeNetwork(Network network, String filename) {
+        int[] degree = new int[network.size + 1];
+        for (int road = 0; road < network.from.length; road++) {
+            degree[network.from[road] + 1]++;
+            degree[network.to[road] + 1]++;
+        }
+        for (int i = 0; i < network.size; i++) {
+            degree[i + 1] += degree[i];
+        }
+        int[] next = degree.clone();
+        int[] neighbour = new int[2 * network.from.length];
+        int[] length = new int[2 * network.from.length];
+        for (int road = 0; road < network.from.length; road++) {
+            int slot = next[network.from[road]]++;
+            neighbour[slot] = network.to[road];
+            length[slot] = network.distance[road];
+            slot = next[network.to[road]]++;
+            neighbour[slot] = network.from[road];
+            length[slot] = network.distance[road];
+        }
+
+        return FileHandler.writeAtomically(filename, writer -> {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < network.size; i++) {
+                line.setLength(0);
+                line.append(name(i)).append(':');
+                for (int slot = degree[i]; slot < degree[i + 1]; slot++) {
+                    line.append(slot == degree[i] ? " " : ", ")
+                        .append(name(neighbour[slot])).append('(').append(length[slot]).append(')');
+                }
+                writer.println(line);
+            }
+        });
+    }
+
+    // Inventory of items called Item-0 .. Item-(items - 1)
+    public static WarehouseManager inventory(int items, long seed) {
+        Random random = new Random(seed);
+        WarehouseManager manager = new WarehouseManager();
+        for (int i = 0; i < items; i++) {
+            manager.addItem(itemName(i), 1 + random.nextInt(MAX_PRIORITY), 1 + random.nextInt(MAX_QUANTITY));
+        }
+        return manager;
+    }
+
+    public static String itemName(int id) {
+        return "Item-" + id;
+    }
+
+    // Writes the same inventory as inventory(items, seed) in the CSV format
+    public static boolean writeInventory(int items, long seed, String filename) {
+        Random random = new Random(seed);
+        return FileHandler.writeAtomically(filename, writer -> {
+            writer.println("ID,Name,Priority,Quantity");
+            for (int i = 0; i < items; i++) {
+                writer.println(String.format("%03d", i + 1) + "," + itemName(i) + "," +
+                               (1 + random.nextInt(MAX_PRIORITY)) + "," + (1 + random.nextInt(MAX_QUANTITY)));
+            }
+        });
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Usage: SyntheticData grid|random|inventory <size> <file> [seed]");
+            return;
+        }
+        int size = Integer.parseInt(args[1]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        boolean written;
+        switch (args[0]) {
+            case "grid":
+                // size is the number of locations, rounded down to a square
+                written = writeNetwork(grid((int) Math.sqrt(size), seed), args[2]);
+                break;
+            case "random":
+                written = writeNetwork(random(size, seed), args[2]);
+                break;
+            case "inventory":
+                written = writeInventory(size, seed, args[2]);
+                break;
+            default:
+                System.out.println("Unknown data kind: " + args[0]);
+                return;
+        }
+        if (written) {
+            System.out.println("Wrote " + args[2]);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package Benchmark;
+
+import Warehouse.WarehouseItem;
+import Warehouse.WarehouseManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// addItem and dispatchItem on an inventory of the given size.
+// 10M items need about 6 GB of heap; pass -jvmArgsAppend -Xmx... to change it.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class WarehouseBenchmark {
+    // New items added per addItem invocation
+    private static final int BATCH = 1000;
+    // Lookups cycled through; a power of two
+    private static final int LOOKUPS = 1024;
+
+    @Param({"10000", "1000000", "10000000"})
+    private int items;
+
+    private WarehouseManager manager;
+    private String[] lookups;
+    private int next;
+
+    @Setup
+    public void setup() {
+        manager = SyntheticData.inventory(items, SyntheticData.DEFAULT_SEED);
+        Random random = new Random(SyntheticData.DEFAULT_SEED);
+        lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = SyntheticData.itemName(random.nextInt(items));
+        }
+    }
+
+    // Names for one addItem invocation, removed again afterwards so the
+    // inventory stays at its nominal size
+    @State(Scope.Thread)
+    public static class Batch {
+        private final String[] names = new String[BATCH];
+        private int count;
+
+        @Setup(Level.Invocation)
+        public void name() {
+            for (int i = 0; i < BATCH; i++) {
+                names[i] = "Added-" + count + "-" + i;
+            }
+            count++;
+        }
+
+        @TearDown(Level.Invocation)
+        public void remove(WarehouseBenchmark benchmark) {
+            for (String name : names) {
+                if (benchmark.manager.itemExists(name)) {
+                    benchmark.manager.removeItem(name);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addItem(Batch batch) {
+        for (int i = 0; i < BATCH; i++) {
+            manager.addItem(batch.names[i], 1 + (i % 10), 1 + i);
+        }
+    }
+
+    // Highest-priority item in stock
+    @Benchmark
+    public WarehouseItem dispatchNext() {
+        return manager.dispatchItem("");
+    }
+
+    @Benchmark
+    public WarehouseItem dispatchByName() {
+        return manager.dispatchItem(lookups[next++ & (LOOKUPS - 1)]);
+    }
+}
@@ -0,0 +1,124 @@
+package Dispatch;
+
+import Logistics.LogisticsManager;
+import Logistics.ShortestPathTree;
+import Warehouse.WarehouseItem;
+import Warehouse.WarehouseManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Dispatches a whole batch of orders from one depot without prompts.
+// The pipeline runs in three stages:
+//   1. one shortest path tree from the depot resolves the route to every
+//      distinct destination once, however many orders go there
+//   2. stock is reserved order by order, so nothing is oversold even while
+//      other threads dispatch from the same warehouse
+//   3. all reservations are committed together with one journal sync
+// Every order gets a result; problems are reported, not thrown.
+public class BatchDispatcher {
+    private final WarehouseManager warehouseManager;
+    private final LogisticsManager logisticsManager;
+
+    public BatchDispatcher(WarehouseManager warehouseManager, LogisticsManager logisticsManager) {
+        this.warehouseManager = warehouseManager;
+        this.logisticsManager = logisticsManager;
+    }
+
+    // Route to one destination shared by all orders going there
+    private static final class Route {
+        final List<String> path;
+        final long distance;
+
+        Route(List<String> path, long distance) {
+            this.path = path;
+            this.distance = distance;
+        }
+    }
+
+    // Processes the orders and returns their results in the same order
+    public List<DispatchResult> dispatch(String depot, List<Order> orders) {
+        // Throws for an unknown depot, that's a problem with the whole batch
+        ShortestPathTree tree = logisticsManager.getShortestPathTree(depot);
+
+        // Stage 1: group by destination and resolve each route once
+        Map<String, Route> routes = new HashMap<>();
+        for (Order order : orders) {
+            String destination = order.getDestination();
+            if (!routes.containsKey(destination)) {
+                routes.put(destination, resolve(tree, depot, destination));
+            }
+        }
+
+        // Stage 2: check and reserve, order by order
+        DispatchResult[] results = new DispatchResult[orders.size()];
+        List<WarehouseManager.Reservation> reservations = new ArrayList<>();
+        boolean reserved = false;
+        try {
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                results[i] = reserve(order, routes.get(order.getDestination()), reservations);
+            }
+            reserved = true;
+        } finally {
+            // Don't leave stock set aside for a batch that was never committed
+            if (!reserved) {
+                for (WarehouseManager.Reservation reservation : reservations) {
+                    warehouseManager.release(reservation);
+                }
+            }
+        }
+
+        // Stage 3: take the reserved stock out with one durable write
+        warehouseManager.commit(reservations);
+
+        List<DispatchResult> list = new ArrayList<>(results.length);
+        Collections.addAll(list, results);
+        return list;
+    }
+
+    // Checks one order and reserves its stock, adding the reservation to reservations
+    private DispatchResult reserve(Order order, Route route, List<WarehouseManager.Reservation> reservations) {
+        WarehouseItem item = order.getItemName() == null ? null :
+                             warehouseManager.findByName(order.getItemName());
+        if (item == null) {
+            return DispatchResult.failed(order, DispatchStatus.UNKNOWN_ITEM);
+        } else if (order.getQuantity() <= 0) {
+            return DispatchResult.failed(order, DispatchStatus.INVALID_QUANTITY);
+        } else if (route == null) {
+            return DispatchResult.failed(order, DispatchStatus.UNKNOWN_DESTINATION);
+        } else if (route.path == null) {
+            return DispatchResult.failed(order, DispatchStatus.NO_ROUTE);
+        }
+        WarehouseManager.Reservation reservation;
+        try {
+            reservation = warehouseManager.tryReserve(item.getId(), order.getQuantity());
+        } catch (IllegalArgumentException e) {
+            // The item was removed by another thread since it was looked up
+            return DispatchResult.failed(order, DispatchStatus.UNKNOWN_ITEM);
+        }
+        if (reservation == null) {
+            return DispatchResult.failed(order, DispatchStatus.INSUFFICIENT_STOCK);
+        }
+        reservations.add(reservation);
+        return new DispatchResult(order, DispatchStatus.DISPATCHED, route.path, route.distance);
+    }
+
+    // Null for an unknown destination, a route without a path if it can't be reached
+    private static Route resolve(ShortestPathTree tree, String depot, String destination) {
+        if (destination == null || tree.getGraph().idOf(destination) < 0) {
+            return null;
+        }
+        if (destination.equals(depot)) {
+            return new Route(Collections.singletonList(depot), 0);
+        }
+        List<String> path = tree.getPath(destination);
+        if (path == null) {
+            return new Route(null, -1);
+        }
+        return new Route(Collections.unmodifiableList(path), tree.getDistance(destination));
+    }
+}
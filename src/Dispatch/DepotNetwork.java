@@ -0,0 +1,152 @@
+package Dispatch;
+
+import Logistics.LogisticsManager;
+import Logistics.NearestRoute;
+import Warehouse.WarehouseItem;
+import Warehouse.WarehouseManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Several warehouses, each with its own inventory and attached to a location
+// of the road network. An order is served by the nearest depot that has the
+// stock: the depots that could serve it are the sources of one multi-source
+// search towards the destination, instead of one route query per depot.
+public class DepotNetwork {
+    private final LogisticsManager logisticsManager;
+    // Inventory of every depot by its location
+    private final Map<String, WarehouseManager> depots = new ConcurrentHashMap<>();
+
+    public DepotNetwork(LogisticsManager logisticsManager) {
+        this.logisticsManager = logisticsManager;
+    }
+
+    public void addDepot(String location, WarehouseManager inventory) {
+        if (logisticsManager.getGraph().idOf(location) < 0) {
+            throw new IllegalArgumentException("Location doesn't exist: " + location);
+        }
+        if (depots.putIfAbsent(location, inventory) != null) {
+            throw new IllegalArgumentException("There is already a depot at " + location);
+        }
+    }
+
+    public void removeDepot(String location) {
+        if (depots.remove(location) == null) {
+            throw new IllegalArgumentException("No depot at " + location);
+        }
+    }
+
+    // Inventory of the depot at a location, null if there's none
+    public WarehouseManager getDepot(String location) {
+        return depots.get(location);
+    }
+
+    public Set<String> getDepotLocations() {
+        return Collections.unmodifiableSet(depots.keySet());
+    }
+
+    // Route from the nearest depot with at least quantity units of the item
+    // available, null if no such depot can reach the destination
+    public NearestRoute findNearestDepot(String itemName, int quantity, String destination) {
+        return logisticsManager.findNearestRoute(depotsWithStock(itemName, quantity), destination);
+    }
+
+    // Dispatches every order from the nearest depot that can serve it and
+    // returns one result per order, in the same order
+    public List<DispatchResult> dispatch(List<Order> orders) {
+        List<DispatchResult> results = new ArrayList<>(orders.size());
+        Map<WarehouseManager, List<WarehouseManager.Reservation>> reservations = new HashMap<>();
+        boolean reserved = false;
+        try {
+            for (Order order : orders) {
+                results.add(dispatch(order, reservations));
+            }
+            reserved = true;
+        } finally {
+            // Don't leave stock set aside for a batch that was never committed
+            if (!reserved) {
+                for (Map.Entry<WarehouseManager, List<WarehouseManager.Reservation>> entry : reservations.entrySet()) {
+                    for (WarehouseManager.Reservation reservation : entry.getValue()) {
+                        entry.getKey().release(reservation);
+                    }
+                }
+            }
+        }
+        // One journal sync per depot for the whole batch
+        for (Map.Entry<WarehouseManager, List<WarehouseManager.Reservation>> entry : reservations.entrySet()) {
+            entry.getKey().commit(entry.getValue());
+        }
+        return results;
+    }
+
+    private DispatchResult dispatch(Order order,
+                                    Map<WarehouseManager, List<WarehouseManager.Reservation>> reservations) {
+        if (order.getQuantity() <= 0) {
+            return DispatchResult.failed(order, DispatchStatus.INVALID_QUANTITY);
+        }
+        if (order.getDestination() == null || logisticsManager.getGraph().idOf(order.getDestination()) < 0) {
+            return DispatchResult.failed(order, DispatchStatus.UNKNOWN_DESTINATION);
+        }
+        if (order.getItemName() == null || !isStocked(order.getItemName())) {
+            return DispatchResult.failed(order, DispatchStatus.UNKNOWN_ITEM);
+        }
+
+        Set<String> candidates = depotsWithStock(order.getItemName(), order.getQuantity());
+        while (!candidates.isEmpty()) {
+            NearestRoute route = logisticsManager.findNearestRoute(candidates, order.getDestination());
+            if (route == null) {
+                return DispatchResult.failed(order, DispatchStatus.NO_ROUTE);
+            }
+            WarehouseManager depot = depots.get(route.getSource());
+            WarehouseItem item = depot == null ? null : depot.findByName(order.getItemName());
+            WarehouseManager.Reservation reservation =
+                item == null ? null : tryReserve(depot, item, order.getQuantity());
+            if (reservation != null) {
+                reservations.computeIfAbsent(depot, key -> new ArrayList<>()).add(reservation);
+                return new DispatchResult(order, DispatchStatus.DISPATCHED, route.getPath(), route.getDistance());
+            }
+            // Someone else took the stock meanwhile, try the next nearest depot
+            candidates.remove(route.getSource());
+        }
+        // The item may have been removed everywhere while trying
+        return DispatchResult.failed(order, isStocked(order.getItemName()) ? DispatchStatus.INSUFFICIENT_STOCK
+                                                                           : DispatchStatus.UNKNOWN_ITEM);
+    }
+
+    // Null if the stock isn't there, or the item was removed from the depot
+    // by another thread since it was looked up
+    private static WarehouseManager.Reservation tryReserve(WarehouseManager depot, WarehouseItem item, int quantity) {
+        try {
+            return depot.tryReserve(item.getId(), quantity);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Depots where at least quantity units of the item are available right now
+    private Set<String> depotsWithStock(String itemName, int quantity) {
+        Set<String> locations = new LinkedHashSet<>();
+        for (Map.Entry<String, WarehouseManager> depot : depots.entrySet()) {
+            WarehouseItem item = depot.getValue().findByName(itemName);
+            if (item != null && item.getAvailable() >= quantity) {
+                locations.add(depot.getKey());
+            }
+        }
+        return locations;
+    }
+
+    private boolean isStocked(String itemName) {
+        for (WarehouseManager depot : depots.values()) {
+            if (depot.findByName(itemName) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
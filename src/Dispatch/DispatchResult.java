@@ -0,0 +1,58 @@
+package Dispatch;
+
+import java.util.List;
+
+// What happened to one order. Orders to the same destination share one
+// read-only route list.
+public class DispatchResult {
+    private final Order order;
+    private final DispatchStatus status;
+    private final List<String> route;
+    private final long distance;
+
+    DispatchResult(Order order, DispatchStatus status, List<String> route, long distance) {
+        this.order = order;
+        this.status = status;
+        this.route = route;
+        this.distance = distance;
+    }
+
+    static DispatchResult failed(Order order, DispatchStatus status) {
+        return new DispatchResult(order, status, null, -1);
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public DispatchStatus getStatus() {
+        return status;
+    }
+
+    public boolean isDispatched() {
+        return status == DispatchStatus.DISPATCHED;
+    }
+
+    // Route from the depot to the destination, null if the order failed
+    public List<String> getRoute() {
+        return route;
+    }
+
+    // Location the order leaves from, null if the order failed
+    public String getDepot() {
+        return route == null ? null : route.get(0);
+    }
+
+    // Length of the route, -1 if the order failed
+    public long getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        if (isDispatched()) {
+            return order + ": dispatched via " + String.join(" -> ", route) + " (" + distance + ")";
+        }
+        return order + ": " + status;
+    }
+}
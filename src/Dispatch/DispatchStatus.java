@@ -0,0 +1,11 @@
+package Dispatch;
+
+// Outcome of one order in a batch
+public enum DispatchStatus {
+    DISPATCHED,
+    UNKNOWN_ITEM,
+    INVALID_QUANTITY,
+    INSUFFICIENT_STOCK,
+    UNKNOWN_DESTINATION,
+    NO_ROUTE
+}
@@ -0,0 +1,31 @@
+package Dispatch;
+
+// One line of a dispatch batch: send quantity units of an item to a location
+public class Order {
+    private final String itemName;
+    private final int quantity;
+    private final String destination;
+
+    public Order(String itemName, int quantity, String destination) {
+        this.itemName = itemName;
+        this.quantity = quantity;
+        this.destination = destination;
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    @Override
+    public String toString() {
+        return quantity + " x " + itemName + " to " + destination;
+    }
+}
@@ -0,0 +1,28 @@
+package Dispatch;
+
+// A drop on a delivery tour: a location and the units unloaded there
+public class Stop {
+    private final String location;
+    private final int load;
+
+    public Stop(String location, int load) {
+        if (load < 0) {
+            throw new IllegalArgumentException("Load can't be negative");
+        }
+        this.location = location;
+        this.load = load;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public int getLoad() {
+        return load;
+    }
+
+    @Override
+    public String toString() {
+        return location + " (" + load + ")";
+    }
+}
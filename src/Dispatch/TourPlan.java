@@ -0,0 +1,38 @@
+package Dispatch;
+
+import java.util.Collections;
+import java.util.List;
+
+// Result of TourPlanner: the vehicle routes and the stops none of them could take
+public class TourPlan {
+    private final String depot;
+    private final List<VehicleRoute> routes;
+    private final List<Stop> unassigned;
+
+    TourPlan(String depot, List<VehicleRoute> routes, List<Stop> unassigned) {
+        this.depot = depot;
+        this.routes = Collections.unmodifiableList(routes);
+        this.unassigned = Collections.unmodifiableList(unassigned);
+    }
+
+    public String getDepot() {
+        return depot;
+    }
+
+    public List<VehicleRoute> getRoutes() {
+        return routes;
+    }
+
+    // Stops that are unknown, unreachable or heavier than a whole vehicle
+    public List<Stop> getUnassigned() {
+        return unassigned;
+    }
+
+    public long getTotalDistance() {
+        long total = 0;
+        for (VehicleRoute route : routes) {
+            total += route.getDistance();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,259 @@
+package Dispatch;
+
+import Logistics.DistanceMatrix;
+import Logistics.LogisticsManager;
+import Logistics.RoadGraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Plans multi-stop delivery tours from one depot.
+//   1. one distance matrix between the depot and every stop location
+//   2. nearest-neighbour construction: each vehicle keeps driving to the
+//      closest stop that still fits its capacity, then returns to the depot
+//   3. 2-opt and Or-opt moves shorten every route until none helps or the
+//      time budget runs out
+//   4. each leg is expanded into the city-by-city path kept by the matrix
+//      searches
+// The whole plan uses one snapshot of the network, so edits made meanwhile
+// can't make a leg disagree with the distances the tour was optimised on.
+// Roads work the same in both directions, so reversing part of a route
+// doesn't change the length of the reversed legs.
+public class TourPlanner {
+    private static final int MAX_SEGMENT = 3;
+
+    private final LogisticsManager logisticsManager;
+
+    public TourPlanner(LogisticsManager logisticsManager) {
+        this.logisticsManager = logisticsManager;
+    }
+
+    // Stops for the dispatched orders of a batch, one per order
+    public static List<Stop> stopsFor(List<DispatchResult> results) {
+        List<Stop> stops = new ArrayList<>();
+        for (DispatchResult result : results) {
+            if (result.isDispatched()) {
+                stops.add(new Stop(result.getOrder().getDestination(), result.getOrder().getQuantity()));
+            }
+        }
+        return stops;
+    }
+
+    // Plans with a single vehicle of unlimited capacity
+    public TourPlan plan(String depot, List<Stop> stops, long timeBudgetMillis) {
+        return plan(depot, stops, Long.MAX_VALUE, timeBudgetMillis);
+    }
+
+    // Plans as many routes as needed so no vehicle carries more than capacity.
+    // timeBudgetMillis bounds the time spent improving the routes.
+    public TourPlan plan(String depot, List<Stop> stops, long capacity, long timeBudgetMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        RoadGraph graph = logisticsManager.getGraph();
+        if (graph.idOf(depot) < 0) {
+            throw new IllegalArgumentException("Location doesn't exist: " + depot);
+        }
+
+        // Matrix points: the depot first, then every distinct stop location
+        List<String> points = new ArrayList<>();
+        Map<String, Integer> pointOf = new HashMap<>();
+        points.add(depot);
+        pointOf.put(depot, 0);
+        List<Stop> unassigned = new ArrayList<>();
+        List<Stop> candidates = new ArrayList<>();
+        for (Stop stop : stops) {
+            if (stop.getLoad() > capacity || graph.idOf(stop.getLocation()) < 0) {
+                unassigned.add(stop);
+                continue;
+            }
+            if (!pointOf.containsKey(stop.getLocation())) {
+                pointOf.put(stop.getLocation(), points.size());
+                points.add(stop.getLocation());
+            }
+            candidates.add(stop);
+        }
+        DistanceMatrix matrix = logisticsManager.computeRouteMatrix(graph, points, points);
+        long[] distances = matrix.getDistances();
+        int size = points.size();
+
+        List<Stop> reachable = new ArrayList<>();
+        List<Integer> reachablePoints = new ArrayList<>();
+        for (Stop stop : candidates) {
+            int point = pointOf.get(stop.getLocation());
+            if (distances[point] < 0) {
+                unassigned.add(stop);
+            } else {
+                reachable.add(stop);
+                reachablePoints.add(point);
+            }
+        }
+
+        // The budget only covers improvement, the matrix and construction always run
+        long deadline = System.nanoTime() + timeBudgetMillis * 1_000_000;
+        List<VehicleRoute> routes = new ArrayList<>();
+        for (int[] route : construct(reachable, reachablePoints, distances, size, capacity)) {
+            improve(route, reachablePoints, distances, size, deadline);
+            routes.add(expand(depot, route, reachable, reachablePoints, matrix));
+        }
+        return new TourPlan(depot, routes, unassigned);
+    }
+
+    // Nearest-neighbour routes as arrays of stop indexes
+    private static List<int[]> construct(List<Stop> stops, List<Integer> stopPoints, long[] distances,
+                                         int size, long capacity) {
+        List<int[]> routes = new ArrayList<>();
+        boolean[] served = new boolean[stops.size()];
+        int left = stops.size();
+        while (left > 0) {
+            int[] route = new int[left];
+            int length = 0;
+            long load = 0;
+            int at = 0;
+            while (true) {
+                int next = -1;
+                long best = Long.MAX_VALUE;
+                for (int stop = 0; stop < stops.size(); stop++) {
+                    if (served[stop] || load + stops.get(stop).getLoad() > capacity) {
+                        continue;
+                    }
+                    long distance = distances[at * size + stopPoints.get(stop)];
+                    if (distance < best) {
+                        best = distance;
+                        next = stop;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                served[next] = true;
+                left--;
+                load += stops.get(next).getLoad();
+                route[length++] = next;
+                at = stopPoints.get(next);
+            }
+            int[] trimmed = new int[length];
+            System.arraycopy(route, 0, trimmed, 0, length);
+            routes.add(trimmed);
+        }
+        return routes;
+    }
+
+    // Applies improving 2-opt and Or-opt moves until none is left or time is up.
+    // The route's load doesn't change, so capacity stays satisfied.
+    private static void improve(int[] route, List<Integer> stopPoints, long[] distances, int size,
+                                long deadline) {
+        int n = route.length;
+        if (n < 3) {
+            return;
+        }
+        // Matrix points of the tour with the depot (point 0) at both ends
+        int[] tour = new int[n + 2];
+        int[] order = route.clone();
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = false;
+            for (int i = 0; i < n; i++) {
+                tour[i + 1] = stopPoints.get(order[i]);
+            }
+
+            // 2-opt: reverse tour[i..j]
+            for (int i = 1; i < n && !improved; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    long delta = d(distances, size, tour[i - 1], tour[j]) + d(distances, size, tour[i], tour[j + 1])
+                               - d(distances, size, tour[i - 1], tour[i]) - d(distances, size, tour[j], tour[j + 1]);
+                    if (delta < 0) {
+                        reverse(order, i - 1, j - 1);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+            if (improved) {
+                continue;
+            }
+
+            // Or-opt: move tour[i..i+len-1] between tour[k] and tour[k+1]
+            for (int len = 1; len <= MAX_SEGMENT && !improved; len++) {
+                for (int i = 1; i + len - 1 <= n && !improved; i++) {
+                    int first = tour[i];
+                    int last = tour[i + len - 1];
+                    int before = tour[i - 1];
+                    int after = tour[i + len];
+                    long removed = d(distances, size, before, first) + d(distances, size, last, after)
+                                 - d(distances, size, before, after);
+                    for (int k = 0; k <= n; k++) {
+                        if (k >= i - 1 && k <= i + len - 1) {
+                            continue;
+                        }
+                        long added = d(distances, size, tour[k], first) + d(distances, size, last, tour[k + 1])
+                                   - d(distances, size, tour[k], tour[k + 1]);
+                        if (added < removed) {
+                            moveSegment(order, i - 1, len, k);
+                            improved = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        System.arraycopy(order, 0, route, 0, n);
+    }
+
+    private static long d(long[] distances, int size, int from, int to) {
+        return distances[from * size + to];
+    }
+
+    private static void reverse(int[] order, int from, int to) {
+        while (from < to) {
+            int swap = order[from];
+            order[from++] = order[to];
+            order[to--] = swap;
+        }
+    }
+
+    // Moves order[start .. start+len-1] to after tour position k (tour = depot + order)
+    private static void moveSegment(int[] order, int start, int len, int k) {
+        int[] segment = new int[len];
+        System.arraycopy(order, start, segment, 0, len);
+        int[] rest = new int[order.length - len];
+        int restLength = 0;
+        // Tour position k is order index k - 1; count how much of it stays ahead of the gap
+        int insertAt = k > start ? k - len : k;
+        for (int i = 0; i < order.length; i++) {
+            if (i < start || i >= start + len) {
+                rest[restLength++] = order[i];
+            }
+        }
+        System.arraycopy(rest, 0, order, 0, insertAt);
+        System.arraycopy(segment, 0, order, insertAt, len);
+        System.arraycopy(rest, insertAt, order, insertAt + len, rest.length - insertAt);
+    }
+
+    // Turns stop indexes into a route with the full path and its length
+    private static VehicleRoute expand(String depot, int[] route, List<Stop> stops, List<Integer> stopPoints,
+                                       DistanceMatrix matrix) {
+        List<Stop> visited = new ArrayList<>(route.length);
+        List<String> path = new ArrayList<>();
+        path.add(depot);
+        long load = 0;
+        long distance = 0;
+        int at = 0;
+        for (int index = 0; index <= route.length; index++) {
+            int next = index < route.length ? stopPoints.get(route[index]) : 0;
+            if (index < route.length) {
+                visited.add(stops.get(route[index]));
+                load += stops.get(route[index]).getLoad();
+            }
+            distance += matrix.get(at, next);
+            if (next != at) {
+                List<String> leg = matrix.getPath(at, next);
+                path.addAll(leg.subList(1, leg.size()));
+            }
+            at = next;
+        }
+        return new VehicleRoute(visited, load, distance, path);
+    }
+}
@@ -0,0 +1,44 @@
+package Dispatch;
+
+import java.util.Collections;
+import java.util.List;
+
+// One vehicle's trip: leaves the depot, serves its stops in order and returns
+public class VehicleRoute {
+    private final List<Stop> stops;
+    private final long load;
+    private final long distance;
+    private final List<String> path;
+
+    VehicleRoute(List<Stop> stops, long load, long distance, List<String> path) {
+        this.stops = Collections.unmodifiableList(stops);
+        this.load = load;
+        this.distance = distance;
+        this.path = Collections.unmodifiableList(path);
+    }
+
+    // Stops in the order they're visited
+    public List<Stop> getStops() {
+        return stops;
+    }
+
+    // Units carried when leaving the depot
+    public long getLoad() {
+        return load;
+    }
+
+    // Length of the whole trip, back to the depot included
+    public long getDistance() {
+        return distance;
+    }
+
+    // Every location driven through, from the depot back to the depot
+    public List<String> getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return "Load " + load + ", distance " + distance + ": " + String.join(" -> ", path);
+    }
+}
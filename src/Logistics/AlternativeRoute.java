@@ -0,0 +1,24 @@
+package Logistics;
+
+import java.util.Collections;
+import java.util.List;
+
+// One of several ranked routes between two locations, see
+// LogisticsManager.findAlternativeRoutes
+public class AlternativeRoute {
+    private final List<String> path;
+    private final long distance;
+
+    AlternativeRoute(List<String> path, long distance) {
+        this.path = Collections.unmodifiableList(path);
+        this.distance = distance;
+    }
+
+    public List<String> getPath() {
+        return path;
+    }
+
+    public long getDistance() {
+        return distance;
+    }
+}
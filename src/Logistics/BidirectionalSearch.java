@@ -0,0 +1,61 @@
+package Logistics;
+
+import java.util.List;
+
+// Runs Dijkstra from both ends and stops once the two searches can't
+// improve the best meeting point. Roads are two-way, so the backward
+// search uses the same graph.
+final class BidirectionalSearch {
+    private BidirectionalSearch() {
+    }
+
+    // Returns the shortest distance and appends the route to pathOut if it's not null
+    static long search(RoadGraph graph, RouteSearchListener listener,
+                       int source, int target, List<String> pathOut) {
+        DijkstraSearch forward = DijkstraSearch.get();
+        DijkstraSearch backward = DijkstraSearch.getBackward();
+        forward.reset(graph, listener);
+        backward.reset(graph, listener);
+        forward.start(source, -1, null);
+        backward.start(target, -1, null);
+
+        // Best route found so far goes forward to meetFrom, then over a road to meetTo
+        long best = DijkstraSearch.UNREACHABLE;
+        int meetFrom = -1;
+        int meetTo = -1;
+
+        while (!forward.isExhausted() && !backward.isExhausted()) {
+            if (forward.peekKey() + backward.peekKey() >= best) {
+                break;
+            }
+
+            // Expand whichever side has the closer frontier
+            boolean forwardTurn = forward.peekKey() <= backward.peekKey();
+            DijkstraSearch active = forwardTurn ? forward : backward;
+            DijkstraSearch other = forwardTurn ? backward : forward;
+            int current = active.settleNext();
+            long currentDistance = active.distance(current);
+
+            for (int edge = graph.firstEdge(current); edge < graph.endEdge(current); edge++) {
+                long otherDistance = other.distance(graph.target(edge));
+                if (otherDistance == DijkstraSearch.UNREACHABLE) {
+                    continue;
+                }
+                long total = currentDistance + graph.weight(edge) + otherDistance;
+                if (total < best) {
+                    best = total;
+                    meetFrom = forwardTurn ? current : graph.target(edge);
+                    meetTo = forwardTurn ? graph.target(edge) : current;
+                }
+            }
+        }
+        forward.finish();
+        backward.finish();
+
+        if (meetFrom >= 0 && pathOut != null) {
+            forward.appendPathTo(meetFrom, pathOut);
+            backward.appendPathFrom(meetTo, pathOut);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,118 @@
+package Logistics;
+
+import java.util.Arrays;
+
+// Connected-component label of every location of one snapshot, so a route
+// query between two components is answered "no route" without a search.
+// Roads are two-way, so components are the same in both directions.
+final class ConnectedComponents {
+    private final int[] componentOf;
+    private final int[] sizes;
+
+    private ConnectedComponents(int[] componentOf, int[] sizes) {
+        this.componentOf = componentOf;
+        this.sizes = sizes;
+    }
+
+    // Labels the graph from scratch with a breadth-first pass per component
+    static ConnectedComponents label(RoadGraph graph) {
+        int size = graph.size();
+        int[] componentOf = new int[size];
+        Arrays.fill(componentOf, -1);
+        int[] queue = new int[size];
+        int[] sizes = new int[Math.max(size, 1)];
+        int count = 0;
+        for (int start = 0; start < size; start++) {
+            if (componentOf[start] >= 0) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            componentOf[start] = count;
+            while (head < tail) {
+                int id = queue[head++];
+                for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                    int next = graph.target(edge);
+                    if (componentOf[next] < 0) {
+                        componentOf[next] = count;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            sizes[count++] = tail;
+        }
+        return new ConnectedComponents(componentOf, Arrays.copyOf(sizes, count));
+    }
+
+    // Labels for graph, which has this snapshot's locations under the same
+    // ids plus new ones after them, once the roads fromIds[i] - toIds[i] are
+    // added. Union-find over the existing components, so only the new roads
+    // are looked at instead of the whole graph.
+    ConnectedComponents withRoads(RoadGraph graph, int[] fromIds, int[] toIds) {
+        int oldSize = componentOf.length;
+        int size = graph.size();
+        // New locations start as components of their own
+        int[] parent = new int[sizes.length + size - oldSize];
+        for (int component = 0; component < parent.length; component++) {
+            parent[component] = component;
+        }
+        for (int i = 0; i < fromIds.length; i++) {
+            int a = find(parent, component(fromIds[i], oldSize));
+            int b = find(parent, component(toIds[i], oldSize));
+            if (a != b) {
+                parent[Math.max(a, b)] = Math.min(a, b);
+            }
+        }
+
+        // Number the merged components again from 0
+        int[] renumbered = new int[parent.length];
+        int count = 0;
+        for (int component = 0; component < parent.length; component++) {
+            int root = find(parent, component);
+            renumbered[component] = root == component ? count++ : renumbered[root];
+        }
+        int[] newComponentOf = new int[size];
+        int[] newSizes = new int[count];
+        for (int id = 0; id < size; id++) {
+            newComponentOf[id] = renumbered[component(id, oldSize)];
+            newSizes[newComponentOf[id]]++;
+        }
+        return new ConnectedComponents(newComponentOf, newSizes);
+    }
+
+    // Old component of id, or the singleton a new location starts in
+    private int component(int id, int oldSize) {
+        return id < oldSize ? componentOf[id] : sizes.length + id - oldSize;
+    }
+
+    // Roots always have the smallest id of their set, so renumbering can
+    // rely on a root coming before its members
+    private static int find(int[] parent, int component) {
+        while (parent[component] != component) {
+            parent[component] = parent[parent[component]];
+            component = parent[component];
+        }
+        return component;
+    }
+
+    int size() {
+        return componentOf.length;
+    }
+
+    boolean connected(int a, int b) {
+        return componentOf[a] == componentOf[b];
+    }
+
+    int componentOf(int id) {
+        return componentOf[id];
+    }
+
+    int count() {
+        return sizes.length;
+    }
+
+    int componentSize(int component) {
+        return sizes[component];
+    }
+}
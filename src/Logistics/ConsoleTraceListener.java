@@ -0,0 +1,24 @@
+package Logistics;
+
+// Prints every step of a route search, useful for demos and debugging
+public class ConsoleTraceListener implements RouteSearchListener {
+    private RoadGraph graph;
+
+    @Override
+    public void searchStarted(RoadGraph graph, int source, int target) {
+        this.graph = graph;
+        System.out.println("\nCalculating shortest path using Indexed Heap:");
+    }
+
+    @Override
+    public void nodeSettled(int id, long distance) {
+        System.out.println("Looking at: " + graph.nameOf(id) +
+                         " (distance so far: " + distance + ")");
+    }
+
+    @Override
+    public void nodeQueued(int id, long distance, boolean decreased) {
+        System.out.println("Found better path to " + graph.nameOf(id) +
+                         " (new distance: " + distance + ")");
+    }
+}
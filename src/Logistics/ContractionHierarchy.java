@@ -0,0 +1,370 @@
+package Logistics;
+
+import Utils.IndexedMinHeap;
+import java.util.Arrays;
+import java.util.List;
+
+// Contraction hierarchy over a RoadGraph snapshot.
+// Locations are contracted one by one in order of importance, adding
+// shortcut roads so distances between the remaining locations stay the same.
+// Queries then only search upwards (towards more important locations) from
+// both ends, which touches a tiny part of the network.
+public final class ContractionHierarchy {
+    // Witness searches give up after this many locations and add the shortcut
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final RoadGraph graph;
+    // Edges from each location to its higher ranked neighbours, shortcuts included.
+    // Their lengths are in weights: a shortcut can be longer than an int holds.
+    private final RoadGraph upward;
+    private final long[] weights;
+    // Location skipped by each upward edge, -1 for real roads
+    private final int[] middles;
+    private final int[] ranks;
+    private final int shortcutCount;
+
+    private ContractionHierarchy(RoadGraph graph, RoadGraph upward, long[] weights, int[] middles,
+                                 int[] ranks, int shortcutCount) {
+        this.graph = graph;
+        this.upward = upward;
+        this.weights = weights;
+        this.middles = middles;
+        this.ranks = ranks;
+        this.shortcutCount = shortcutCount;
+    }
+
+    // Orders and contracts every location of graph
+    public static ContractionHierarchy build(RoadGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    // Snapshot the hierarchy was built from
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    public int getUpwardEdgeCount() {
+        return upward.edgeCount();
+    }
+
+    // Returns the shortest distance and appends the route to pathOut if it's not null
+    long query(int source, int target, RouteSearchListener listener, List<String> pathOut) {
+        DijkstraSearch forward = DijkstraSearch.get();
+        DijkstraSearch backward = DijkstraSearch.getBackward();
+        forward.reset(upward, weights, listener);
+        backward.reset(upward, weights, listener);
+        forward.start(source, -1, null);
+        backward.start(target, -1, null);
+
+        long best = DijkstraSearch.UNREACHABLE;
+        int meet = -1;
+        while (true) {
+            // Each side stops once it can't beat the best meeting point
+            boolean forwardOpen = !forward.isExhausted() && forward.peekKey() < best;
+            boolean backwardOpen = !backward.isExhausted() && backward.peekKey() < best;
+            if (!forwardOpen && !backwardOpen) {
+                break;
+            }
+            boolean forwardTurn = forwardOpen &&
+                (!backwardOpen || forward.peekKey() <= backward.peekKey());
+            DijkstraSearch active = forwardTurn ? forward : backward;
+            DijkstraSearch other = forwardTurn ? backward : forward;
+
+            int current = active.settleNext();
+            long otherDistance = other.distance(current);
+            if (otherDistance != DijkstraSearch.UNREACHABLE) {
+                long total = active.distance(current) + otherDistance;
+                if (total < best) {
+                    best = total;
+                    meet = current;
+                }
+            }
+        }
+        forward.finish();
+        backward.finish();
+
+        if (meet >= 0 && pathOut != null) {
+            unpack(hierarchyPath(forward, backward, meet), pathOut);
+        }
+        return best;
+    }
+
+    // Locations of the upward/downward route through meet, shortcuts still packed
+    private static int[] hierarchyPath(DijkstraSearch forward, DijkstraSearch backward, int meet) {
+        int forwardCount = 0;
+        for (int id = meet; id >= 0; id = forward.previous(id)) {
+            forwardCount++;
+        }
+        int count = forwardCount;
+        for (int id = backward.previous(meet); id >= 0; id = backward.previous(id)) {
+            count++;
+        }
+        int[] hops = new int[count];
+        int index = forwardCount;
+        for (int id = meet; id >= 0; id = forward.previous(id)) {
+            hops[--index] = id;
+        }
+        index = forwardCount;
+        for (int id = backward.previous(meet); id >= 0; id = backward.previous(id)) {
+            hops[index++] = id;
+        }
+        return hops;
+    }
+
+    // Appends the real roads behind a route that may contain shortcuts
+    private void unpack(int[] hops, List<String> path) {
+        path.add(graph.nameOf(hops[0]));
+
+        // Depth first over shortcut halves with an explicit stack of (from, to) pairs
+        int[] stack = new int[16];
+        for (int i = 0; i + 1 < hops.length; i++) {
+            int size = 0;
+            stack[size++] = hops[i];
+            stack[size++] = hops[i + 1];
+            while (size > 0) {
+                int to = stack[--size];
+                int at = stack[--size];
+                int middle = middles[findUpwardEdge(at, to)];
+                if (middle < 0) {
+                    path.add(graph.nameOf(to));
+                    continue;
+                }
+                if (size + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                // Second half goes on first so the first half is unpacked first
+                stack[size++] = middle;
+                stack[size++] = to;
+                stack[size++] = at;
+                stack[size++] = middle;
+            }
+        }
+    }
+
+    // Each pair of locations has at most one upward edge, stored at the lower one
+    private int findUpwardEdge(int a, int b) {
+        int lower = ranks[a] < ranks[b] ? a : b;
+        int higher = lower == a ? b : a;
+        for (int edge = upward.firstEdge(lower); edge < upward.endEdge(lower); edge++) {
+            if (upward.target(edge) == higher) {
+                return edge;
+            }
+        }
+        throw new IllegalStateException("Missing hierarchy edge " + a + " - " + b);
+    }
+
+    // Mutable adjacency used only while contracting
+    private static final class Builder {
+        private final RoadGraph graph;
+        private final int size;
+        private final int[][] neighbours;
+        private final long[][] weights;
+        private final int[][] middles;
+        private final int[] degrees;
+        private final int[] contractedNeighbours;
+        // Upward edges of each location, fixed when it is contracted
+        private final int[][] upTargets;
+        private final long[][] upWeights;
+        private final int[][] upMiddles;
+        private int shortcutCount;
+
+        // Witness search state
+        private final long[] witnessDistances;
+        private final int[] witnessStamps;
+        private int witnessVersion;
+        private final IndexedMinHeap witnessHeap;
+
+        Builder(RoadGraph graph) {
+            this.graph = graph;
+            this.size = graph.size();
+            neighbours = new int[size][];
+            weights = new long[size][];
+            middles = new int[size][];
+            degrees = new int[size];
+            contractedNeighbours = new int[size];
+            upTargets = new int[size][];
+            upWeights = new long[size][];
+            upMiddles = new int[size][];
+            witnessDistances = new long[size];
+            witnessStamps = new int[size];
+            witnessHeap = new IndexedMinHeap(size);
+
+            for (int id = 0; id < size; id++) {
+                int degree = graph.endEdge(id) - graph.firstEdge(id);
+                neighbours[id] = new int[Math.max(degree, 2)];
+                weights[id] = new long[Math.max(degree, 2)];
+                middles[id] = new int[Math.max(degree, 2)];
+            }
+            for (int id = 0; id < size; id++) {
+                for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                    if (graph.target(edge) != id) {
+                        addOrLower(id, graph.target(edge), graph.weight(edge), -1);
+                    }
+                }
+            }
+        }
+
+        ContractionHierarchy build() {
+            int[] ranks = new int[size];
+            IndexedMinHeap order = new IndexedMinHeap(size);
+            for (int id = 0; id < size; id++) {
+                order.insert(id, priority(id));
+            }
+
+            int rank = 0;
+            while (!order.isEmpty()) {
+                int id = order.extractMin();
+                // Lazy update: priorities go stale as neighbours get contracted
+                if (!order.isEmpty()) {
+                    long current = priority(id);
+                    if (current > order.peekPriority()) {
+                        order.insert(id, current);
+                        continue;
+                    }
+                }
+                contract(id, false);
+                ranks[id] = rank++;
+            }
+
+            int[] offsets = new int[size + 1];
+            for (int id = 0; id < size; id++) {
+                offsets[id + 1] = offsets[id] + upTargets[id].length;
+            }
+            int[] targets = new int[offsets[size]];
+            long[] edgeWeights = new long[offsets[size]];
+            int[] edgeMiddles = new int[offsets[size]];
+            for (int id = 0; id < size; id++) {
+                System.arraycopy(upTargets[id], 0, targets, offsets[id], upTargets[id].length);
+                System.arraycopy(upWeights[id], 0, edgeWeights, offsets[id], upWeights[id].length);
+                System.arraycopy(upMiddles[id], 0, edgeMiddles, offsets[id], upMiddles[id].length);
+            }
+            RoadGraph upward = graph.withEdges(offsets, targets, null);
+            return new ContractionHierarchy(graph, upward, edgeWeights, edgeMiddles, ranks, shortcutCount);
+        }
+
+        // Edge difference plus a term that spreads contraction evenly
+        private long priority(int id) {
+            return 2L * contract(id, true) - degrees[id] + contractedNeighbours[id];
+        }
+
+        // Counts (and unless simulating, adds) the shortcuts needed to remove id
+        private int contract(int id, boolean simulate) {
+            int degree = degrees[id];
+            int[] around = neighbours[id];
+            long[] aroundWeights = weights[id];
+            int shortcuts = 0;
+
+            for (int i = 0; i < degree; i++) {
+                int from = around[i];
+                long maxVia = 0;
+                for (int j = i + 1; j < degree; j++) {
+                    maxVia = Math.max(maxVia, aroundWeights[i] + aroundWeights[j]);
+                }
+                if (maxVia == 0) {
+                    continue;
+                }
+                witnessSearch(from, id, maxVia);
+                for (int j = i + 1; j < degree; j++) {
+                    long via = aroundWeights[i] + aroundWeights[j];
+                    if (witnessDistance(around[j]) > via) {
+                        shortcuts++;
+                        if (!simulate) {
+                            addOrLower(from, around[j], via, id);
+                            addOrLower(around[j], from, via, id);
+                        }
+                    }
+                }
+            }
+
+            if (!simulate) {
+                shortcutCount += shortcuts;
+                // Remaining neighbours all get contracted later, so they rank higher
+                upTargets[id] = Arrays.copyOf(neighbours[id], degrees[id]);
+                upWeights[id] = Arrays.copyOf(weights[id], degrees[id]);
+                upMiddles[id] = Arrays.copyOf(middles[id], degrees[id]);
+                for (int i = 0; i < degrees[id]; i++) {
+                    remove(neighbours[id][i], id);
+                    contractedNeighbours[neighbours[id][i]]++;
+                }
+                neighbours[id] = null;
+                weights[id] = null;
+                middles[id] = null;
+                degrees[id] = 0;
+            }
+            return shortcuts;
+        }
+
+        // Dijkstra among uncontracted locations that avoids skipped
+        private void witnessSearch(int source, int skipped, long maxDistance) {
+            witnessVersion++;
+            witnessHeap.clear();
+            witnessStamps[source] = witnessVersion;
+            witnessDistances[source] = 0;
+            witnessHeap.insert(source, 0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+                if (witnessHeap.peekPriority() > maxDistance) {
+                    break;
+                }
+                int current = witnessHeap.extractMin();
+                settled++;
+                long currentDistance = witnessDistances[current];
+                for (int i = 0; i < degrees[current]; i++) {
+                    int next = neighbours[current][i];
+                    if (next == skipped) {
+                        continue;
+                    }
+                    long distance = currentDistance + weights[current][i];
+                    if (distance < witnessDistance(next)) {
+                        witnessStamps[next] = witnessVersion;
+                        witnessDistances[next] = distance;
+                        witnessHeap.insertOrDecrease(next, distance);
+                    }
+                }
+            }
+        }
+
+        private long witnessDistance(int id) {
+            return witnessStamps[id] == witnessVersion ? witnessDistances[id] : Long.MAX_VALUE;
+        }
+
+        // Adds a one-way edge or lowers an existing one
+        private void addOrLower(int from, int to, long weight, int middle) {
+            int[] list = neighbours[from];
+            for (int i = 0; i < degrees[from]; i++) {
+                if (list[i] == to) {
+                    if (weight < weights[from][i]) {
+                        weights[from][i] = weight;
+                        middles[from][i] = middle;
+                    }
+                    return;
+                }
+            }
+            if (degrees[from] == list.length) {
+                neighbours[from] = Arrays.copyOf(list, list.length * 2);
+                weights[from] = Arrays.copyOf(weights[from], list.length * 2);
+                middles[from] = Arrays.copyOf(middles[from], list.length * 2);
+            }
+            int index = degrees[from]++;
+            neighbours[from][index] = to;
+            weights[from][index] = weight;
+            middles[from][index] = middle;
+        }
+
+        private void remove(int from, int to) {
+            for (int i = 0; i < degrees[from]; i++) {
+                if (neighbours[from][i] == to) {
+                    int last = --degrees[from];
+                    neighbours[from][i] = neighbours[from][last];
+                    weights[from][i] = weights[from][last];
+                    middles[from][i] = middles[from][last];
+                    return;
+                }
+            }
+        }
+    }
+}
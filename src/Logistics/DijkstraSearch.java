@@ -0,0 +1,307 @@
+package Logistics;
+
+import Utils.IndexedMinHeap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Reusable Dijkstra state for one thread.
+// Arrays grow to the largest graph seen and are reset with a version stamp,
+// so a warmed-up thread runs queries without allocating anything.
+final class DijkstraSearch {
+    static final long UNREACHABLE = Long.MAX_VALUE;
+
+    private static final ThreadLocal<DijkstraSearch> LOCAL =
+        ThreadLocal.withInitial(DijkstraSearch::new);
+    // Second instance per thread for the backward half of bidirectional search
+    private static final ThreadLocal<DijkstraSearch> LOCAL_BACKWARD =
+        ThreadLocal.withInitial(DijkstraSearch::new);
+
+    private long[] distances = new long[0];
+    private int[] previous = new int[0];
+    // A label is only valid when its stamp matches the current version
+    private int[] stamps = new int[0];
+    private int version;
+    private final IndexedMinHeap heap = new IndexedMinHeap(0);
+    private RoadGraph graph;
+    // Edge lengths used instead of the graph's, for hierarchies whose
+    // shortcuts may not fit in an int; null reads them from the graph
+    private long[] lengths;
+    // Optional observer, null keeps the loop free of callbacks
+    private RouteSearchListener listener;
+    // A* lower bound towards target, null for plain Dijkstra
+    private RouteHeuristic heuristic;
+    private int target;
+
+    private DijkstraSearch() {
+    }
+
+    // Gets the search state owned by the calling thread
+    static DijkstraSearch get() {
+        return LOCAL.get();
+    }
+
+    // Gets the calling thread's state for backward searches
+    static DijkstraSearch getBackward() {
+        return LOCAL_BACKWARD.get();
+    }
+
+    // Prepares for a new search, forgetting all labels in O(1)
+    void reset(RoadGraph graph, RouteSearchListener listener) {
+        reset(graph, null, listener);
+    }
+
+    // Same, with lengths[edge] as the length of each edge of graph
+    void reset(RoadGraph graph, long[] lengths, RouteSearchListener listener) {
+        this.graph = graph;
+        this.lengths = lengths;
+        this.listener = listener;
+        this.heuristic = null;
+        int size = graph.size();
+        if (stamps.length < size) {
+            distances = new long[size];
+            previous = new int[size];
+            stamps = new int[size];
+            version = 0;
+        }
+        heap.ensureCapacity(size);
+        heap.clear();
+        version++;
+        if (version == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            version = 1;
+        }
+    }
+
+    long distance(int id) {
+        return stamps[id] == version ? distances[id] : UNREACHABLE;
+    }
+
+    int previous(int id) {
+        return stamps[id] == version ? previous[id] : -1;
+    }
+
+    private void label(int id, long distance, int prev) {
+        stamps[id] = version;
+        distances[id] = distance;
+        previous[id] = prev;
+    }
+
+    // Runs Dijkstra from source until target is settled, -1 settles everything
+    void run(int source, int target) {
+        runAStar(source, target, null);
+    }
+
+    // Runs Dijkstra from source until every marked target is settled
+    void runToTargets(int source, boolean[] isTarget, int targetCount) {
+        start(source, -1, null);
+        int remaining = targetCount;
+        while (!heap.isEmpty() && remaining > 0) {
+            if (isTarget[settleNext()]) {
+                remaining--;
+            }
+        }
+        finish();
+    }
+
+    // Runs one search from all sources at once until target is settled; the
+    // route found starts at whichever source is closest to target
+    void runFromSources(int[] sources, int target) {
+        this.heuristic = null;
+        this.target = target;
+        if (listener != null) {
+            listener.searchStarted(graph, sources.length > 0 ? sources[0] : -1, target);
+        }
+        for (int source : sources) {
+            if (!heap.contains(source)) {
+                label(source, 0, -1);
+                heap.insert(source, 0);
+            }
+        }
+        while (!heap.isEmpty()) {
+            if (settleNext() == target) {
+                break;
+            }
+        }
+        finish();
+    }
+
+    // Runs A* from source to target, the heuristic must never overestimate
+    void runAStar(int source, int target, RouteHeuristic heuristic) {
+        start(source, target, heuristic);
+        while (!heap.isEmpty()) {
+            if (settleNext() == target) {
+                break;
+            }
+        }
+        finish();
+    }
+
+    // A* from source to target that never enters a blocked location or drives
+    // along a blocked edge, used for the spur searches of KShortestPaths.
+    // Locations the heuristic rates UNREACHABLE are skipped.
+    void runAvoiding(int source, int target, RouteHeuristic heuristic,
+                     boolean[] blockedNodes, boolean[] blockedEdges) {
+        start(source, target, heuristic);
+        while (!heap.isEmpty()) {
+            int current = heap.extractMin();
+            long currentDistance = distances[current];
+            if (listener != null) {
+                listener.nodeSettled(current, currentDistance);
+            }
+            if (current == target) {
+                break;
+            }
+            for (int edge = graph.firstEdge(current); edge < graph.endEdge(current); edge++) {
+                int next = graph.target(edge);
+                if (blockedEdges[edge] || blockedNodes[next]) {
+                    continue;
+                }
+                long estimate = heuristic.estimate(next, target);
+                if (estimate == UNREACHABLE) {
+                    continue;
+                }
+                long newDistance = currentDistance + graph.weight(edge);
+                if (listener != null) {
+                    listener.edgeRelaxed(current, next, newDistance);
+                }
+                if (newDistance < distance(next)) {
+                    if (listener != null) {
+                        listener.nodeQueued(next, newDistance, heap.contains(next));
+                    }
+                    label(next, newDistance, current);
+                    heap.insertOrDecrease(next, newDistance + estimate);
+                }
+            }
+        }
+        finish();
+    }
+
+    // Time-dependent Dijkstra: labels are arrival times when leaving source
+    // at departure. Profiles are FIFO, so waiting never helps and the first
+    // time a location is settled is its earliest arrival. Roads without a
+    // profile take their length in km at freeFlowSpeed km/h.
+    void runDepartingAt(int source, int target, long departure, TravelTimes travelTimes, int freeFlowSpeed) {
+        this.heuristic = null;
+        this.target = target;
+        if (listener != null) {
+            listener.searchStarted(graph, source, target);
+        }
+        label(source, departure, -1);
+        heap.insert(source, departure);
+        while (!heap.isEmpty()) {
+            int current = heap.extractMin();
+            long arrival = distances[current];
+            if (listener != null) {
+                listener.nodeSettled(current, arrival);
+            }
+            if (current == target) {
+                break;
+            }
+            for (int edge = graph.firstEdge(current); edge < graph.endEdge(current); edge++) {
+                int next = graph.target(edge);
+                long freeFlowTime = Math.max(1, (graph.weight(edge) * 3600L + freeFlowSpeed - 1) / freeFlowSpeed);
+                long nextArrival = arrival + (travelTimes == null ? freeFlowTime
+                                              : travelTimes.travelTime(edge, arrival, freeFlowTime));
+                if (listener != null) {
+                    listener.edgeRelaxed(current, next, nextArrival);
+                }
+                if (nextArrival < distance(next)) {
+                    if (listener != null) {
+                        listener.nodeQueued(next, nextArrival, heap.contains(next));
+                    }
+                    label(next, nextArrival, current);
+                    heap.insertOrDecrease(next, nextArrival);
+                }
+            }
+        }
+        finish();
+    }
+
+    // Seeds the heap with source, the search is then driven with settleNext
+    void start(int source, int target, RouteHeuristic heuristic) {
+        this.heuristic = heuristic;
+        this.target = target;
+        if (listener != null) {
+            listener.searchStarted(graph, source, target);
+        }
+        label(source, 0, -1);
+        heap.insert(source, priority(source, 0));
+    }
+
+    void finish() {
+        if (listener != null) {
+            listener.searchFinished(target >= 0 && previous(target) >= 0);
+        }
+    }
+
+    boolean isExhausted() {
+        return heap.isEmpty();
+    }
+
+    // Smallest key in the heap, the next settled distance when there's no heuristic
+    long peekKey() {
+        return heap.peekPriority();
+    }
+
+    // Settles the closest queued location, relaxes its roads and returns it
+    int settleNext() {
+        RouteSearchListener listener = this.listener;
+        int current = heap.extractMin();
+        long currentDistance = distances[current];
+        if (listener != null) {
+            listener.nodeSettled(current, currentDistance);
+        }
+        if (current == target) {
+            return current;
+        }
+
+        // Check all connected locations
+        for (int edge = graph.firstEdge(current); edge < graph.endEdge(current); edge++) {
+            int next = graph.target(edge);
+            long newDistance = currentDistance + (lengths != null ? lengths[edge] : graph.weight(edge));
+            if (listener != null) {
+                listener.edgeRelaxed(current, next, newDistance);
+            }
+
+            // If found a shorter path, update it in place
+            if (newDistance < distance(next)) {
+                if (listener != null) {
+                    listener.nodeQueued(next, newDistance, heap.contains(next));
+                }
+                label(next, newDistance, current);
+                heap.insertOrDecrease(next, priority(next, newDistance));
+            }
+        }
+        return current;
+    }
+
+    private long priority(int id, long distance) {
+        return heuristic == null ? distance : distance + heuristic.estimate(id, target);
+    }
+
+    // Returns the distance to target and appends its route to pathOut if it's not null
+    long pathTo(int target, List<String> pathOut) {
+        long distance = distance(target);
+        if (distance != UNREACHABLE && pathOut != null) {
+            appendPathTo(target, pathOut);
+        }
+        return distance;
+    }
+
+    // Adds the locations from the source to id, in travel order
+    void appendPathTo(int id, List<String> path) {
+        int from = path.size();
+        for (; id >= 0; id = previous[id]) {
+            path.add(graph.nameOf(id));
+        }
+        Collections.reverse(path.subList(from, path.size()));
+    }
+
+    // Adds the locations from id back to the source, used by backward searches
+    void appendPathFrom(int id, List<String> path) {
+        for (; id >= 0; id = previous[id]) {
+            path.add(graph.nameOf(id));
+        }
+    }
+}
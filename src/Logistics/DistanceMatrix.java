@@ -0,0 +1,143 @@
+package Logistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shortest distances from every source to every target, stored row-major
+// in one primitive array. Unreachable pairs hold -1.
+// A matrix computed with routes also keeps, for each row, the part of the
+// search tree the routes to its targets run through.
+public class DistanceMatrix {
+    private final List<String> sources;
+    private final List<String> targets;
+    private final long[] distances;
+    // Snapshot the routes refer to, null without routes
+    private final RoadGraph graph;
+    // Per row: location ids on routes, the index of each one's predecessor
+    // (-1 for the source) and the index each column's route ends at
+    // (-1 when unreachable)
+    private final int[][] routeNodes;
+    private final int[][] routeParents;
+    private final int[][] routeEnds;
+    private final Map<String, Integer> sourceIndex = new HashMap<>();
+    private final Map<String, Integer> targetIndex = new HashMap<>();
+
+    DistanceMatrix(List<String> sources, List<String> targets, long[] distances) {
+        this(sources, targets, distances, null, null, null, null);
+    }
+
+    DistanceMatrix(List<String> sources, List<String> targets, long[] distances, RoadGraph graph,
+                   int[][] routeNodes, int[][] routeParents, int[][] routeEnds) {
+        this.sources = new ArrayList<>(sources);
+        this.targets = new ArrayList<>(targets);
+        this.distances = distances;
+        this.graph = graph;
+        this.routeNodes = routeNodes;
+        this.routeParents = routeParents;
+        this.routeEnds = routeEnds;
+        for (int i = 0; i < sources.size(); i++) {
+            sourceIndex.putIfAbsent(sources.get(i), i);
+        }
+        for (int j = 0; j < targets.size(); j++) {
+            targetIndex.putIfAbsent(targets.get(j), j);
+        }
+    }
+
+    public List<String> getSources() {
+        return new ArrayList<>(sources);
+    }
+
+    public List<String> getTargets() {
+        return new ArrayList<>(targets);
+    }
+
+    public int rows() {
+        return sources.size();
+    }
+
+    public int columns() {
+        return targets.size();
+    }
+
+    // Distance by row and column index
+    public long get(int row, int column) {
+        return distances[row * targets.size() + column];
+    }
+
+    // Distance by location names
+    public long get(String source, String target) {
+        Integer row = sourceIndex.get(source);
+        Integer column = targetIndex.get(target);
+        if (row == null || column == null) {
+            throw new IllegalArgumentException("Not in matrix: " + source + " -> " + target);
+        }
+        return get(row, column);
+    }
+
+    // Direct access to the row-major backing array, don't modify it
+    public long[] getDistances() {
+        return distances;
+    }
+
+    // Route of a cell read back from the row's search, null if the target
+    // can't be reached. Only for matrices computed with routes.
+    public List<String> getPath(int row, int column) {
+        if (graph == null) {
+            throw new IllegalStateException("Matrix was computed without routes");
+        }
+        int index = routeEnds[row][column];
+        if (index < 0) {
+            return null;
+        }
+        List<String> path = new ArrayList<>();
+        for (; index >= 0; index = routeParents[row][index]) {
+            path.add(graph.nameOf(routeNodes[row][index]));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // Keeps the routes from a finished search to targetIds; shared prefixes
+    // are stored once. Fills nodes, parents and ends at position row.
+    static void keepRoutes(DijkstraSearch search, int[] targetIds, int row,
+                           int[][] nodes, int[][] parents, int[][] ends) {
+        Map<Integer, Integer> indexOf = new HashMap<>();
+        int[] rowNodes = new int[16];
+        int[] rowParents = new int[16];
+        int[] rowEnds = new int[targetIds.length];
+        int count = 0;
+        for (int column = 0; column < targetIds.length; column++) {
+            int target = targetIds[column];
+            if (search.distance(target) == DijkstraSearch.UNREACHABLE) {
+                rowEnds[column] = -1;
+                continue;
+            }
+            // Add the route's locations from the target back to the first one already kept
+            int firstNew = count;
+            int id = target;
+            Integer known = indexOf.get(id);
+            while (known == null && id >= 0) {
+                if (count == rowNodes.length) {
+                    rowNodes = Arrays.copyOf(rowNodes, count * 2);
+                    rowParents = Arrays.copyOf(rowParents, count * 2);
+                }
+                indexOf.put(id, count);
+                rowNodes[count++] = id;
+                id = search.previous(id);
+                known = id >= 0 ? indexOf.get(id) : null;
+            }
+            // Each new location's predecessor is the next one added, or the one already kept
+            for (int i = firstNew; i < count; i++) {
+                rowParents[i] = i + 1 < count ? i + 1 : known != null ? known : -1;
+            }
+            rowEnds[column] = indexOf.get(target);
+        }
+        nodes[row] = Arrays.copyOf(rowNodes, count);
+        parents[row] = Arrays.copyOf(rowParents, count);
+        ends[row] = rowEnds;
+    }
+}
@@ -0,0 +1,404 @@
+package Logistics;
+
+import Utils.FileHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Binary snapshot of a RoadGraph that is opened with FileChannel.map, so the
+// rows and names are read from the page cache instead of being copied onto
+// the heap. Everything is little-endian; the layout is
+//     header      magic, format version, location count, edge count,
+//                 name bytes, hash slots, CRC32 of everything after the header,
+//                 CRC32 of the header fields before it
+//     int[]       name offsets (count + 1) into the name bytes
+//     int[]       hash slots of the name lookup table, -1 when empty
+//     int[]       CSR offsets (count + 1), targets, weights
+//     byte[]      UTF-8 location names back to back
+// The name table uses String.hashCode with linear probing, so looking a
+// location up doesn't need anything but the mapped file.
+// Each section is mapped on its own, so the file may exceed 2 GB but no
+// single section may: a network is limited to 2^27 locations (the name
+// table can have twice as many slots), 2^29 - 1 roads and 2 GB of names. Opening checks only the header; the body's checksum is
+// read by verify(), or by open() when asked, because it touches every page.
+// A running session keeps the file it opened mapped, and Windows refuses to
+// replace or delete a mapped file, so saves go to numbered generations
+// (base.1, base.2, ...) next to it instead of over it.
+public final class GraphSnapshotFile {
+    private static final int MAGIC = 0x4C4D5347; // "LMSG"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    // Header bytes covered by the header checksum
+    private static final int HEADER_FIELDS = 32;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Largest counts whose sections still fit in one 2 GB mapping
+    private static final int MAX_LOCATIONS = 1 << 27;
+    private static final int MAX_ROADS = (1 << 29) - 1;
+
+    private GraphSnapshotFile() {
+    }
+
+    // Writes the graph to a temporary file and moves it over path, so a
+    // crash never leaves a half written snapshot behind
+    public static void write(RoadGraph graph, Path path) throws IOException {
+        int count = graph.size();
+        int edgeCount = graph.edgeCount();
+        byte[][] names = new byte[count][];
+        long nameBytes = 0;
+        for (int id = 0; id < count; id++) {
+            names[id] = graph.nameOf(id).getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[id].length;
+        }
+        if (count > MAX_LOCATIONS || edgeCount > MAX_ROADS || nameBytes > Integer.MAX_VALUE) {
+            throw new IOException("Network is too large for a snapshot file");
+        }
+        int slotCount = slotCount(count);
+
+        int[] slots = new int[slotCount];
+        Arrays.fill(slots, -1);
+        int mask = slotCount - 1;
+        for (int id = 0; id < count; id++) {
+            int slot = mix(graph.nameOf(id).hashCode()) & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // The body is streamed after the header, which is filled in last
+            SectionWriter out = new SectionWriter(channel);
+            int offset = 0;
+            for (int id = 0; id < count; id++) {
+                out.putInt(offset);
+                offset += names[id].length;
+            }
+            out.putInt(offset);
+            for (int slot : slots) {
+                out.putInt(slot);
+            }
+            for (int id = 0; id < count; id++) {
+                out.putInt(graph.firstEdge(id));
+            }
+            out.putInt(edgeCount);
+            for (int edge = 0; edge < edgeCount; edge++) {
+                out.putInt(graph.target(edge));
+            }
+            for (int edge = 0; edge < edgeCount; edge++) {
+                out.putInt(graph.weight(edge));
+            }
+            for (byte[] name : names) {
+                out.put(name);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putInt(count);
+            header.putInt(edgeCount);
+            header.putInt((int) nameBytes);
+            header.putInt(slotCount);
+            header.putLong(out.crc.getValue());
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.array(), 0, HEADER_FIELDS);
+            header.putLong(headerCrc.getValue());
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileHandler.syncDirectory(path);
+    }
+
+    // Streams little-endian values to a channel, starting after the header
+    // and keeping the CRC32 of everything written
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+
+        SectionWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.position(HEADER_SIZE);
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int written = 0;
+            while (written < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+
+        void flush() throws IOException {
+            crc.update(buffer.array(), 0, buffer.position());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // Writes the graph as the next generation of base, then removes the older
+    // ones. A generation that is still mapped can't be removed on every
+    // platform; it is left for a later save to clean up.
+    public static Path writeGeneration(RoadGraph graph, Path base) throws IOException {
+        long latest = latestGenerationNumber(base);
+        Path next = generation(base, latest + 1);
+        write(graph, next);
+        deleteQuietly(base);
+        Path directory = base.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, base.getFileName() + ".*")) {
+            for (Path file : files) {
+                long number = generationNumber(base, file);
+                if (number >= 0 && number <= latest) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+        return next;
+    }
+
+    // Newest generation of base, null if none has been written
+    public static Path latestGeneration(Path base) throws IOException {
+        long latest = latestGenerationNumber(base);
+        return latest > 0 ? generation(base, latest) : null;
+    }
+
+    private static long latestGenerationNumber(Path base) throws IOException {
+        Path directory = base.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        long latest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, base.getFileName() + ".*")) {
+            for (Path file : files) {
+                latest = Math.max(latest, generationNumber(base, file));
+            }
+        }
+        return latest;
+    }
+
+    private static Path generation(Path base, long number) {
+        return base.resolveSibling(base.getFileName() + "." + number);
+    }
+
+    // Number of a generation file of base, -1 for anything else (e.g. a .tmp file)
+    private static long generationNumber(Path base, Path file) {
+        String suffix = file.getFileName().toString().substring(base.getFileName().toString().length() + 1);
+        if (suffix.isEmpty() || suffix.length() > 18 || !suffix.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        return Long.parseLong(suffix);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still mapped by this session, the next save tries again
+        }
+    }
+
+    // Maps a snapshot file after checking its header. Verifying the body's
+    // checksum as well reads every page once, so it's left to the caller.
+    public static RoadGraph open(Path path, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (verifyChecksum && bodyChecksum(channel) != header.checksum) {
+                throw new IOException("Snapshot checksum doesn't match");
+            }
+
+            // The mappings stay valid after the channel is closed
+            long position = HEADER_SIZE;
+            IntBuffer nameOffsets = ints(channel, position, header.count + 1);
+            position += 4L * (header.count + 1);
+            IntBuffer slots = ints(channel, position, header.slotCount);
+            position += 4L * header.slotCount;
+            IntBuffer offsets = ints(channel, position, header.count + 1);
+            position += 4L * (header.count + 1);
+            IntBuffer targets = ints(channel, position, header.edgeCount);
+            position += 4L * header.edgeCount;
+            IntBuffer weights = ints(channel, position, header.edgeCount);
+            position += 4L * header.edgeCount;
+            ByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, position, header.nameBytes);
+
+            return RoadGraph.of(new MappedNames(header.count, nameOffsets, slots, names), offsets, targets, weights);
+        }
+    }
+
+    // Reads the whole body and compares it with the checksum in the header,
+    // e.g. in the background after open(path, false)
+    public static boolean verify(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return bodyChecksum(channel) == readHeader(channel).checksum;
+        }
+    }
+
+    // Fields of a header whose checksum and sizes have been checked
+    private static final class Header {
+        int count;
+        int edgeCount;
+        int nameBytes;
+        int slotCount;
+        long checksum;
+    }
+
+    private static Header readHeader(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            throw new IOException("Not a network snapshot file");
+        }
+        ByteBuffer file = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (file.hasRemaining()) {
+            if (channel.read(file, file.position()) < 0) {
+                throw new IOException("Not a network snapshot file");
+            }
+        }
+
+        if (file.getInt(0) != MAGIC) {
+            throw new IOException("Not a network snapshot file");
+        }
+        if (file.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + file.getInt(4));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(file.array(), 0, HEADER_FIELDS);
+        if (crc.getValue() != file.getLong(HEADER_FIELDS)) {
+            throw new IOException("Corrupted snapshot header");
+        }
+        Header header = new Header();
+        header.count = file.getInt(8);
+        header.edgeCount = file.getInt(12);
+        header.nameBytes = file.getInt(16);
+        header.slotCount = file.getInt(20);
+        header.checksum = file.getLong(24);
+        if (header.count < 0 || header.count > MAX_LOCATIONS || header.edgeCount < 0 ||
+            header.edgeCount > MAX_ROADS || header.nameBytes < 0 ||
+            header.slotCount != slotCount(header.count)) {
+            throw new IOException("Corrupted snapshot header");
+        }
+        long expected = HEADER_SIZE + 4L * (header.count + 1) + 4L * header.slotCount +
+                        4L * (header.count + 1) + 8L * header.edgeCount + header.nameBytes;
+        if (expected != size) {
+            throw new IOException("Snapshot file is truncated or corrupted");
+        }
+        return header;
+    }
+
+    private static long bodyChecksum(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long position = HEADER_SIZE;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            buffer.flip();
+            crc.update(buffer);
+            buffer.clear();
+        }
+        return crc.getValue();
+    }
+
+    private static IntBuffer ints(FileChannel channel, long position, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * length)
+                      .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    // Power of two with at most half of the slots in use
+    private static int slotCount(int count) {
+        int slots = 2;
+        while (slots < count * 2L) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Name table read straight out of the mapped file
+    private static final class MappedNames extends LocationNames {
+        private final int count;
+        private final IntBuffer offsets;
+        private final IntBuffer slots;
+        private final ByteBuffer bytes;
+
+        MappedNames(int count, IntBuffer offsets, IntBuffer slots, ByteBuffer bytes) {
+            this.count = count;
+            this.offsets = offsets;
+            this.slots = slots;
+            this.bytes = bytes;
+        }
+
+        @Override
+        int size() {
+            return count;
+        }
+
+        @Override
+        int idOf(String name) {
+            byte[] key = name.getBytes(StandardCharsets.UTF_8);
+            int mask = slots.limit() - 1;
+            int slot = mix(name.hashCode()) & mask;
+            int id;
+            while ((id = slots.get(slot)) >= 0) {
+                if (matches(id, key)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private boolean matches(int id, byte[] key) {
+            int start = offsets.get(id);
+            if (offsets.get(id + 1) - start != key.length) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (bytes.get(start + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        String nameOf(int id) {
+            int start = offsets.get(id);
+            byte[] name = new byte[offsets.get(id + 1) - start];
+            bytes.get(start, name);
+            return new String(name, StandardCharsets.UTF_8);
+        }
+    }
+}
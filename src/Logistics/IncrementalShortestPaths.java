@@ -0,0 +1,168 @@
+package Logistics;
+
+import Utils.IndexedMinHeap;
+
+import java.util.Arrays;
+
+// Shortest path tree of one registered source that is repaired after road
+// changes instead of being searched again from scratch:
+//   - a road that got longer or was removed only matters if the tree drives
+//     along it; the part of the tree hanging below it is cut off and each
+//     of its locations is reseeded from its cheapest neighbour outside it
+//   - a road that got shorter seeds the location it leads to
+// One Dijkstra pass from the seeds then settles only the locations whose
+// distance actually changes. Roads go both ways, so a location's
+// neighbours are also the locations with a road into it.
+// Only used under the manager's write lock.
+final class IncrementalShortestPaths {
+    private final String source;
+    private long[] distances;
+    private int[] previous;
+    private final IndexedMinHeap heap = new IndexedMinHeap(0);
+    // Scratch space for the cut-off subtree
+    private boolean[] detached = new boolean[0];
+    private int[] stack = new int[0];
+
+    IncrementalShortestPaths(String source) {
+        this.source = source;
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    boolean isComputed() {
+        return distances != null;
+    }
+
+    // Full search, used for new registrations and when ids have moved
+    void recompute(RoadGraph graph) {
+        int sourceId = graph.idOf(source);
+        ShortestPathTree tree = ShortestPathTree.compute(graph, sourceId, null);
+        int size = graph.size();
+        distances = new long[size];
+        previous = new int[size];
+        for (int id = 0; id < size; id++) {
+            distances[id] = tree.distance(id);
+            previous[id] = tree.previous(id);
+        }
+    }
+
+    // Brings the tree up to date with graph after the roads between
+    // fromIds[i] and toIds[i] changed. Locations may only have been added
+    // since the last update, never removed.
+    void repair(RoadGraph graph, int[] fromIds, int[] toIds) {
+        int size = graph.size();
+        if (distances.length < size) {
+            int oldSize = distances.length;
+            distances = Arrays.copyOf(distances, size);
+            previous = Arrays.copyOf(previous, size);
+            Arrays.fill(distances, oldSize, size, DijkstraSearch.UNREACHABLE);
+            Arrays.fill(previous, oldSize, size, -1);
+        }
+        heap.ensureCapacity(size);
+        if (detached.length < size) {
+            detached = new boolean[size];
+            stack = new int[size];
+        }
+
+        // Cut off the subtrees below tree roads that got longer or were removed
+        int detachedCount = 0;
+        for (int i = 0; i < fromIds.length; i++) {
+            detachedCount = detachIfWorse(graph, fromIds[i], toIds[i], detachedCount);
+            detachedCount = detachIfWorse(graph, toIds[i], fromIds[i], detachedCount);
+        }
+
+        // Reseed every cut-off location from its best neighbour still attached
+        for (int i = 0; i < detachedCount; i++) {
+            int id = stack[i];
+            for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                int neighbour = graph.target(edge);
+                if (!detached[neighbour]) {
+                    relax(neighbour, id, graph.weight(edge));
+                }
+            }
+        }
+        for (int i = 0; i < detachedCount; i++) {
+            detached[stack[i]] = false;
+        }
+
+        // Roads that got shorter or are new
+        for (int i = 0; i < fromIds.length; i++) {
+            int weight = weight(graph, fromIds[i], toIds[i]);
+            if (weight >= 0) {
+                relax(fromIds[i], toIds[i], weight);
+                relax(toIds[i], fromIds[i], weight);
+            }
+        }
+
+        // Settle everything that improved
+        while (!heap.isEmpty()) {
+            int id = heap.extractMin();
+            long distance = distances[id];
+            for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                relax(id, graph.target(edge), graph.weight(edge), distance);
+            }
+        }
+    }
+
+    // Detaches the subtree below to when the tree reaches it over the road
+    // from -> to and that road is now longer or gone
+    private int detachIfWorse(RoadGraph graph, int from, int to, int detachedCount) {
+        if (previous[to] != from || detached[to]) {
+            return detachedCount;
+        }
+        int weight = weight(graph, from, to);
+        if (weight >= 0 && distances[from] + weight <= distances[to]) {
+            return detachedCount;
+        }
+        // Depth-first over tree children, which are always neighbours
+        int top = detachedCount;
+        stack[top++] = to;
+        detached[to] = true;
+        for (int next = detachedCount; next < top; next++) {
+            int id = stack[next];
+            for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                int child = graph.target(edge);
+                if (previous[child] == id && !detached[child]) {
+                    detached[child] = true;
+                    stack[top++] = child;
+                }
+            }
+            distances[id] = DijkstraSearch.UNREACHABLE;
+            previous[id] = -1;
+        }
+        return top;
+    }
+
+    private void relax(int from, int to, int weight) {
+        relax(from, to, weight, distances[from]);
+    }
+
+    private void relax(int from, int to, int weight, long fromDistance) {
+        if (fromDistance == DijkstraSearch.UNREACHABLE) {
+            return;
+        }
+        long distance = fromDistance + weight;
+        if (distance < distances[to]) {
+            distances[to] = distance;
+            previous[to] = from;
+            heap.insertOrDecrease(to, distance);
+        }
+    }
+
+    // Length of the road from -> to, -1 if there is none
+    private static int weight(RoadGraph graph, int from, int to) {
+        for (int edge = graph.firstEdge(from); edge < graph.endEdge(from); edge++) {
+            if (graph.target(edge) == to) {
+                return graph.weight(edge);
+            }
+        }
+        return -1;
+    }
+
+    // Read-only copy for the published snapshot
+    ShortestPathTree toTree(RoadGraph graph) {
+        return new ShortestPathTree(graph, graph.idOf(source), distances.clone(), previous.clone());
+    }
+}
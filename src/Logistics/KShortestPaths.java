@@ -0,0 +1,249 @@
+package Logistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Yen's k shortest loopless paths with lazy spur searches. All of them
+// reuse one shortest path tree towards the target:
+//   - a spur location's cheapest free road plus the tree distance behind it
+//     is a lower bound on its spur path, so each deviation is queued with
+//     that bound and only worked out once it reaches the front of the queue
+//   - when the tree's route behind that road avoids everything blocked, it
+//     is the spur path and no search runs at all
+//   - otherwise A* runs with the tree distances as its lower bound
+// Most deviations never reach the front, and few of the rest need a search.
+final class KShortestPaths {
+    private final RoadGraph graph;
+    private final int source;
+    private final int target;
+    // Distances to target; roads are two-way, so this is the tree from target
+    private final ShortestPathTree toTarget;
+    private final RouteHeuristic bound;
+    private final RouteSearchListener listener;
+    private final boolean[] blockedNodes;
+    private final boolean[] blockedEdges;
+
+    // A route as location ids with the distance travelled up to each one
+    private static final class Candidate {
+        final int[] nodes;
+        final long[] distances;
+
+        Candidate(int[] nodes, long[] distances) {
+            this.nodes = nodes;
+            this.distances = distances;
+        }
+
+        long distance() {
+            return distances[distances.length - 1];
+        }
+    }
+
+    // Leaving route at its spur-th location; path is null until worked out
+    private static final class Deviation {
+        final Candidate route;
+        final int spur;
+        final long bound;
+        Candidate path;
+
+        Deviation(Candidate route, int spur, long bound) {
+            this.route = route;
+            this.spur = spur;
+            this.bound = bound;
+        }
+
+        long key() {
+            return path != null ? path.distance() : bound;
+        }
+    }
+
+    KShortestPaths(RoadGraph graph, int source, int target, ShortestPathTree toTarget,
+                   RouteSearchListener listener) {
+        this.graph = graph;
+        this.source = source;
+        this.target = target;
+        this.toTarget = toTarget;
+        this.bound = (from, to) -> toTarget.distance(from);
+        this.listener = listener;
+        this.blockedNodes = new boolean[graph.size()];
+        this.blockedEdges = new boolean[graph.edgeCount()];
+    }
+
+    // Up to k routes, shortest first; empty if target can't be reached
+    List<AlternativeRoute> find(int k) {
+        List<AlternativeRoute> routes = new ArrayList<>();
+        if (source == target || toTarget.distance(source) == DijkstraSearch.UNREACHABLE) {
+            return routes;
+        }
+        List<Candidate> accepted = new ArrayList<>();
+        accepted.add(pathAlongTree(new int[0], new long[0], 0, source, 0));
+        // Worked out paths first on equal keys, they need no more work
+        PriorityQueue<Deviation> deviations = new PriorityQueue<>((a, b) -> {
+            int byKey = Long.compare(a.key(), b.key());
+            return byKey != 0 ? byKey : Boolean.compare(a.path == null, b.path == null);
+        });
+        Set<List<Integer>> seen = new HashSet<>();
+        seen.add(key(accepted.get(0).nodes));
+
+        while (accepted.size() < k) {
+            Candidate previous = accepted.get(accepted.size() - 1);
+            for (int spur = 0; spur < previous.nodes.length - 1; spur++) {
+                setBlocked(previous.nodes, spur, accepted, true);
+                int edge = cheapestFreeEdge(previous.nodes[spur]);
+                setBlocked(previous.nodes, spur, accepted, false);
+                if (edge >= 0) {
+                    deviations.add(new Deviation(previous, spur, previous.distances[spur] +
+                                                 graph.weight(edge) + toTarget.distance(graph.target(edge))));
+                }
+            }
+
+            Candidate next = null;
+            while (next == null && !deviations.isEmpty()) {
+                Deviation deviation = deviations.poll();
+                if (deviation.path == null) {
+                    // More routes may be blocked by now, so the path can only be longer than the bound
+                    deviation.path = spurPath(deviation.route, deviation.spur, accepted);
+                    if (deviation.path != null && !seen.contains(key(deviation.path.nodes))) {
+                        deviations.add(deviation);
+                    }
+                } else if (seen.add(key(deviation.path.nodes))) {
+                    next = deviation.path;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            accepted.add(next);
+        }
+
+        for (Candidate candidate : accepted) {
+            List<String> path = new ArrayList<>(candidate.nodes.length);
+            for (int id : candidate.nodes) {
+                path.add(graph.nameOf(id));
+            }
+            routes.add(new AlternativeRoute(path, candidate.distance()));
+        }
+        return routes;
+    }
+
+    // Shortest route that follows route up to its spur-th location and then
+    // leaves it on a road no accepted route with the same start took
+    private Candidate spurPath(Candidate route, int spur, List<Candidate> accepted) {
+        setBlocked(route.nodes, spur, accepted, true);
+        int from = route.nodes[spur];
+        Candidate path = null;
+        int edge = cheapestFreeEdge(from);
+        if (edge >= 0) {
+            // The spur location itself may not come up again behind the road
+            blockedNodes[from] = true;
+            path = pathAlongTree(route.nodes, route.distances, spur + 1, graph.target(edge),
+                                 route.distances[spur] + graph.weight(edge));
+            blockedNodes[from] = false;
+            if (path == null) {
+                path = search(route, spur);
+            }
+        }
+        setBlocked(route.nodes, spur, accepted, false);
+        return path;
+    }
+
+    // Blocks, or unblocks, the roads that accepted routes sharing the root
+    // take out of the spur location, and the root's earlier locations, which
+    // would make a loop
+    private void setBlocked(int[] root, int spur, List<Candidate> accepted, boolean blocked) {
+        for (Candidate route : accepted) {
+            if (route.nodes.length > spur + 1 && Arrays.equals(route.nodes, 0, spur + 1, root, 0, spur + 1)) {
+                blockedEdges[edgeBetween(route.nodes[spur], route.nodes[spur + 1])] = blocked;
+            }
+        }
+        for (int i = 0; i < spur; i++) {
+            blockedNodes[root[i]] = blocked;
+        }
+    }
+
+    // Road out of from that minimizes its length plus the tree distance
+    // behind it among the roads not blocked, -1 if there is none
+    private int cheapestFreeEdge(int from) {
+        int best = -1;
+        long bestDistance = DijkstraSearch.UNREACHABLE;
+        for (int edge = graph.firstEdge(from); edge < graph.endEdge(from); edge++) {
+            int next = graph.target(edge);
+            long remaining = toTarget.distance(next);
+            if (blockedEdges[edge] || blockedNodes[next] || remaining == DijkstraSearch.UNREACHABLE) {
+                continue;
+            }
+            if (graph.weight(edge) + remaining < bestDistance) {
+                best = edge;
+                bestDistance = graph.weight(edge) + remaining;
+            }
+        }
+        return best;
+    }
+
+    // The first rootLength locations of root, then from reached after
+    // distance, then the tree's route on to target. Null if that route runs
+    // into something blocked.
+    private Candidate pathAlongTree(int[] root, long[] rootDistances, int rootLength, int from, long distance) {
+        int length = rootLength + 1;
+        for (int id = from; id != target; id = toTarget.previous(id)) {
+            int next = toTarget.previous(id);
+            if (blockedEdges[edgeBetween(id, next)] || blockedNodes[next]) {
+                return null;
+            }
+            length++;
+        }
+        int[] nodes = Arrays.copyOf(root, length);
+        long[] distances = Arrays.copyOf(rootDistances, length);
+        int index = rootLength;
+        for (int id = from; id >= 0; id = toTarget.previous(id)) {
+            nodes[index] = id;
+            // Along the tree the remaining distance drops by each road's length
+            distances[index++] = distance + toTarget.distance(from) - toTarget.distance(id);
+        }
+        return new Candidate(nodes, distances);
+    }
+
+    // Spur path found by A* around the blocked roads and locations
+    private Candidate search(Candidate root, int spur) {
+        int from = root.nodes[spur];
+        DijkstraSearch search = DijkstraSearch.get();
+        search.reset(graph, listener);
+        search.runAvoiding(from, target, bound, blockedNodes, blockedEdges);
+        if (search.distance(target) == DijkstraSearch.UNREACHABLE) {
+            return null;
+        }
+
+        int length = 0;
+        for (int id = target; id != from; id = search.previous(id)) {
+            length++;
+        }
+        int[] nodes = Arrays.copyOf(root.nodes, spur + 1 + length);
+        long[] distances = Arrays.copyOf(root.distances, nodes.length);
+        int index = nodes.length - 1;
+        for (int id = target; id != from; id = search.previous(id)) {
+            nodes[index] = id;
+            distances[index--] = root.distances[spur] + search.distance(id);
+        }
+        return new Candidate(nodes, distances);
+    }
+
+    private int edgeBetween(int from, int to) {
+        for (int edge = graph.firstEdge(from); edge < graph.endEdge(from); edge++) {
+            if (graph.target(edge) == to) {
+                return edge;
+            }
+        }
+        throw new IllegalStateException("No road between " + graph.nameOf(from) + " and " + graph.nameOf(to));
+    }
+
+    private static List<Integer> key(int[] nodes) {
+        List<Integer> key = new ArrayList<>(nodes.length);
+        for (int id : nodes) {
+            key.add(id);
+        }
+        return key;
+    }
+}
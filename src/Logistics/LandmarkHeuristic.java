@@ -0,0 +1,72 @@
+package Logistics;
+
+import java.util.Arrays;
+
+// ALT heuristic: exact distances from a few landmarks give lower bounds
+// through the triangle inequality, |d(L, to) - d(L, from)| <= d(from, to).
+public final class LandmarkHeuristic implements RouteHeuristic {
+    private static final int UNKNOWN = -1;
+
+    private final int landmarkCount;
+    // Distance from every landmark, stored per location: [id * landmarkCount + l]
+    private final int[] distances;
+
+    private LandmarkHeuristic(int landmarkCount, int[] distances) {
+        this.landmarkCount = landmarkCount;
+        this.distances = distances;
+    }
+
+    // Picks landmarks by farthest-point selection and stores their distances
+    public static LandmarkHeuristic build(RoadGraph graph, int landmarkCount) {
+        int size = graph.size();
+        int count = Math.min(landmarkCount, size);
+        int[] distances = new int[size * count];
+        // Distance from each location to the nearest landmark picked so far
+        long[] nearest = new long[size];
+        Arrays.fill(nearest, DijkstraSearch.UNREACHABLE);
+
+        DijkstraSearch search = DijkstraSearch.get();
+        int landmark = 0;
+        for (int l = 0; l < count; l++) {
+            search.reset(graph, null);
+            search.run(landmark, -1);
+            for (int id = 0; id < size; id++) {
+                long distance = search.distance(id);
+                // Clamping keeps the bounds valid, it can only shrink differences
+                distances[id * count + l] = distance == DijkstraSearch.UNREACHABLE
+                    ? UNKNOWN : (int) Math.min(distance, Integer.MAX_VALUE);
+                nearest[id] = Math.min(nearest[id], distance);
+            }
+
+            // Next landmark is the location farthest from all current ones,
+            // locations in components without a landmark come first
+            long best = -1;
+            for (int id = 0; id < size; id++) {
+                if (nearest[id] > best) {
+                    best = nearest[id];
+                    landmark = id;
+                }
+            }
+        }
+        return new LandmarkHeuristic(count, distances);
+    }
+
+    public int getLandmarkCount() {
+        return landmarkCount;
+    }
+
+    @Override
+    public long estimate(int from, int to) {
+        int fromBase = from * landmarkCount;
+        int toBase = to * landmarkCount;
+        long bound = 0;
+        for (int l = 0; l < landmarkCount; l++) {
+            int fromDistance = distances[fromBase + l];
+            int toDistance = distances[toBase + l];
+            if (fromDistance != UNKNOWN && toDistance != UNKNOWN) {
+                bound = Math.max(bound, Math.abs((long) toDistance - fromDistance));
+            }
+        }
+        return bound;
+    }
+}
@@ -1,16 +1,24 @@
 package Logistics;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class Location {
     private String name;
     // Stores connections to other locations and their distances
     private Map<Location, Integer> connections;
+    // Locations that have a road leading here, so removals only touch neighbours
+    private Set<Location> incoming;
+    // Travel time profiles of roads out of here, null until one is set
+    private Map<Location, TravelTimeProfile> travelTimeProfiles;
 
     public Location(String name) {
         this.name = name;
         this.connections = new HashMap<>();
+        this.incoming = new HashSet<>();
     }
 
     public String getName() {
@@ -21,14 +29,58 @@ public class Location {
         return connections;
     }
 
+    public Set<Location> getIncomingConnections() {
+        return Collections.unmodifiableSet(incoming);
+    }
+
     // Adds a new road to another location
     public void addConnection(Location destination, int distance) {
         connections.put(destination, distance);
+        destination.incoming.add(this);
     }
 
     // Removes a road to a location
     public void removeConnection(Location destination) {
-        connections.remove(destination);
+        if (connections.remove(destination) != null) {
+            destination.incoming.remove(this);
+            setTravelTimeProfile(destination, null);
+        }
+    }
+
+    public boolean hasTravelTimeProfiles() {
+        return travelTimeProfiles != null;
+    }
+
+    // Profile of the road to destination, null if it always takes the free-flow time
+    public TravelTimeProfile getTravelTimeProfile(Location destination) {
+        return travelTimeProfiles == null ? null : travelTimeProfiles.get(destination);
+    }
+
+    // Sets the profile of the road to destination, null removes it
+    public void setTravelTimeProfile(Location destination, TravelTimeProfile profile) {
+        if (profile != null) {
+            if (travelTimeProfiles == null) {
+                travelTimeProfiles = new HashMap<>();
+            }
+            travelTimeProfiles.put(destination, profile);
+        } else if (travelTimeProfiles != null) {
+            travelTimeProfiles.remove(destination);
+            if (travelTimeProfiles.isEmpty()) {
+                travelTimeProfiles = null;
+            }
+        }
+    }
+
+    // Removes every road into and out of this location in O(degree)
+    public void disconnect() {
+        for (Location source : incoming.toArray(new Location[0])) {
+            source.removeConnection(this);
+        }
+        for (Location destination : connections.keySet()) {
+            destination.incoming.remove(this);
+        }
+        connections.clear();
+        travelTimeProfiles = null;
     }
 
     // Makes it easier to print location names
@@ -0,0 +1,45 @@
+package Logistics;
+
+import java.util.Map;
+
+// Name table of a RoadGraph, maps location names to dense ids and back.
+// Graphs built in memory keep plain strings, graphs opened from a binary
+// snapshot decode names straight out of the mapped file.
+abstract class LocationNames {
+    abstract int size();
+
+    // Returns the id of a location or -1 if it's not in the table
+    abstract int idOf(String name);
+
+    abstract String nameOf(int id);
+
+    static LocationNames of(String[] names, Map<String, Integer> ids) {
+        return new InMemory(names, ids);
+    }
+
+    private static final class InMemory extends LocationNames {
+        private final String[] names;
+        private final Map<String, Integer> ids;
+
+        InMemory(String[] names, Map<String, Integer> ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+
+        @Override
+        int size() {
+            return names.length;
+        }
+
+        @Override
+        int idOf(String name) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+
+        @Override
+        String nameOf(int id) {
+            return names[id];
+        }
+    }
+}
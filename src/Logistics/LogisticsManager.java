@@ -1,23 +1,416 @@
 package Logistics;
 
-import Utils.BinaryHeap;
+import Utils.FileHandler;
+import Utils.Journal;
+
 import java.io.*;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
+// Route queries read an immutable NetworkSnapshot that is swapped atomically,
+// so they never block and never see a half-applied edit. Edits are
+// serialized on a write lock and publish a new snapshot when they finish.
 public class LogisticsManager {
-    // Keeps track of all locations in network
+    private static final int DEFAULT_LANDMARKS = 8;
+    private static final int DEFAULT_ROUTE_CACHE_SIZE = 10_000;
+    private static final int DEFAULT_FREE_FLOW_SPEED = 60;
+
+    // Keeps track of all locations in network, only touched under writeLock.
+    // Null until the first edit after a bulk load, see model().
     private Map<String, Location> locations;
+    private final Object writeLock = new Object();
+    // Nesting depth of batch() calls and whether they changed anything
+    private int batchDepth;
+    private boolean pendingChanges;
+    // Whether the pending changes need the graph rebuilt, or only changed
+    // the lengths of the roads in pendingWeightChanges (pairs of names)
+    private boolean pendingRebuild;
+    private final List<String[]> pendingWeightChanges = new ArrayList<>();
+    // Whether travel time profiles changed since the last publish
+    private boolean pendingProfiles;
+    // Speed in km/h on roads without a travel time profile
+    private volatile int freeFlowSpeed = DEFAULT_FREE_FLOW_SPEED;
+    // Current published version of the network
+    private volatile NetworkSnapshot snapshot;
+    // Optional observer for route searches, off by default
+    private volatile RouteSearchListener searchListener;
+    // Strategy used by findShortestPath(start, end)
+    private volatile SearchMode searchMode = SearchMode.DIJKSTRA;
+    // Builds the A* heuristic for a snapshot
+    private volatile Function<RoadGraph, RouteHeuristic> heuristicFactory =
+        graph -> LandmarkHeuristic.build(graph, DEFAULT_LANDMARKS);
+    private final RouteCache routeCache;
+    // Optional log that every committed edit is recorded in
+    private volatile Journal journal;
+    // Sources whose shortest path trees are repaired on every edit, and the
+    // roads changed since the last publish (pairs of names)
+    private final Map<String, IncrementalShortestPaths> registeredSources = new LinkedHashMap<>();
+    private final List<String[]> pendingRoads = new ArrayList<>();
+    // Set when ids may have moved, then registered trees are searched again
+    private boolean pendingRecompute;
+    // Roads added since the last publish (pairs of names), merged into the
+    // previous components; after removals they're labelled again instead
+    private final List<String[]> pendingJoins = new ArrayList<>();
+    private boolean pendingSplits;
 
     public LogisticsManager() {
-        this.locations = new HashMap<>();
+        this(DEFAULT_ROUTE_CACHE_SIZE);
+    }
+
+    // A route cache capacity of 0 turns caching off
+    public LogisticsManager(int routeCacheCapacity) {
+        // Insertion order keeps graph ids stable while only roads change
+        this.locations = new LinkedHashMap<>();
+        this.routeCache = new RouteCache(routeCacheCapacity);
+        this.snapshot = new NetworkSnapshot(RoadGraph.build(locations.values()), 0);
+    }
+
+    // Returns the current routing snapshot
+    public RoadGraph getGraph() {
+        return snapshot.graph;
+    }
+
+    // Returns the contraction hierarchy for the current snapshot, building it if needed
+    public ContractionHierarchy prepareContractionHierarchy() {
+        return snapshot.hierarchy();
+    }
+
+    // Version of the published snapshot, increases with every committed edit
+    public long getNetworkVersion() {
+        return snapshot.version;
+    }
+
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    // Sets a listener that sees every search step, null turns it off
+    public void setSearchListener(RouteSearchListener listener) {
+        this.searchListener = listener;
+    }
+
+    public RouteSearchListener getSearchListener() {
+        return searchListener;
+    }
+
+    // Chooses the strategy used when no mode is passed to findShortestPath
+    public void setSearchMode(SearchMode mode) {
+        this.searchMode = Objects.requireNonNull(mode);
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    // Replaces the A* heuristic, e.g. with one that knows real coordinates
+    public void setHeuristicFactory(Function<RoadGraph, RouteHeuristic> factory) {
+        this.heuristicFactory = Objects.requireNonNull(factory);
+    }
+
+    // Runs several edits and publishes them as one new version. Readers keep
+    // using the old snapshot until the batch ends; edits made before an
+    // exception are still published.
+    public void batch(Runnable edits) {
+        synchronized (writeLock) {
+            batchDepth++;
+            try {
+                edits.run();
+            } finally {
+                batchDepth--;
+                if (batchDepth == 0 && pendingChanges) {
+                    publish();
+                }
+            }
+        }
+        commitJournal();
+    }
+
+    // Records every later edit in the journal, null turns it off
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Re-applies a journal record written by this class, returns false for
+    // records that belong to someone else. Records hold absolute values and
+    // edits that no longer apply are skipped, so replaying records the
+    // network file already contains changes nothing.
+    public boolean applyJournalRecord(String[] record) {
+        synchronized (writeLock) {
+            Map<String, Location> locations = model();
+            switch (record[0]) {
+                case "location":
+                    if (!locations.containsKey(record[1])) {
+                        addLocation(record[1]);
+                    }
+                    return true;
+                case "road":
+                    if (locations.containsKey(record[1]) && locations.containsKey(record[2])) {
+                        addRoad(record[1], record[2], Integer.parseInt(record[3]));
+                    }
+                    return true;
+                case "delete-location":
+                    if (locations.containsKey(record[1])) {
+                        deleteLocation(record[1]);
+                    }
+                    return true;
+                case "delete-road":
+                    if (locations.containsKey(record[1]) && locations.containsKey(record[2])) {
+                        deleteRoad(record[1], record[2]);
+                    }
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    // Appends an edit to the journal, called under writeLock once it succeeded
+    private void record(String... fields) {
+        Journal journal = this.journal;
+        if (journal != null) {
+            journal.append(fields);
+        }
+    }
+
+    // Waits until the recorded edits are durable. Inside a batch this is left
+    // to batch(), so the whole batch shares one fsync.
+    private void commitJournal() {
+        Journal journal = this.journal;
+        if (journal != null && !Thread.holdsLock(writeLock)) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                System.out.println("Warning: Could not write the change to the journal.");
+            }
+        }
+    }
+
+    // Compacts the journal while holding writeLock, so no edit or batch is
+    // half done: writeSnapshot saves the published network, which must hold
+    // every logistics record the journal is about to drop
+    public boolean compactJournal(BooleanSupplier writeSnapshot) throws IOException {
+        synchronized (writeLock) {
+            if (batchDepth > 0) {
+                throw new IllegalStateException("Can't compact the journal inside a batch");
+            }
+            Journal journal = this.journal;
+            return journal != null && journal.compact(writeSnapshot);
+        }
+    }
+
+    // Version the edit in progress will be published as
+    private long pendingVersion() {
+        return snapshot.version + 1;
+    }
+
+    // Publishes right away, or at the end of the surrounding batch
+    private void changed() {
+        pendingRebuild = true;
+        publishOrDefer();
+    }
+
+    // Like changed() for an edit that only changed the length of a road,
+    // which is published by patching the weights of the current graph
+    private void weightChanged(String from, String to) {
+        pendingWeightChanges.add(new String[] {from, to});
+        publishOrDefer();
+    }
+
+    private void publishOrDefer() {
+        if (batchDepth == 0) {
+            publish();
+        } else {
+            pendingChanges = true;
+        }
+    }
+
+    private void publish() {
+        pendingChanges = false;
+        RoadGraph graph = pendingRebuild ? null : patchWeights(snapshot.graph);
+        boolean rebuilt = graph == null;
+        if (rebuilt) {
+            graph = RoadGraph.build(model().values());
+        }
+        // Patched weights keep the edge indexes, so the packed profiles still fit
+        TravelTimes travelTimes = snapshot.travelTimes;
+        if (rebuilt || pendingProfiles) {
+            travelTimes = TravelTimes.compile(graph, model());
+        }
+        ConnectedComponents components = rebuilt ? joinComponents(graph) : snapshot.knownComponents();
+        pendingRebuild = false;
+        pendingWeightChanges.clear();
+        pendingProfiles = false;
+        pendingJoins.clear();
+        pendingSplits = false;
+        NetworkSnapshot next = new NetworkSnapshot(graph, pendingVersion(), travelTimes, components);
+        maintainRegisteredTrees(next);
+        snapshot = next;
+    }
+
+    // Components of graph from the current ones and the added roads, or null
+    // to label them on first use when something was removed
+    private ConnectedComponents joinComponents(RoadGraph graph) {
+        ConnectedComponents previous = snapshot.knownComponents();
+        if (previous == null || pendingSplits || graph.size() < previous.size()) {
+            return null;
+        }
+        int[] fromIds = new int[pendingJoins.size()];
+        int[] toIds = new int[pendingJoins.size()];
+        for (int i = 0; i < fromIds.length; i++) {
+            fromIds[i] = graph.idOf(pendingJoins.get(i)[0]);
+            toIds[i] = graph.idOf(pendingJoins.get(i)[1]);
+            if (fromIds[i] < 0 || toIds[i] < 0) {
+                return null;
+            }
+        }
+        return previous.withRoads(graph, fromIds, toIds);
+    }
+
+    // Copy of graph with the lengths in pendingWeightChanges, null if a road
+    // can't be found and the graph has to be rebuilt
+    private RoadGraph patchWeights(RoadGraph graph) {
+        int[] edges = new int[2 * pendingWeightChanges.size()];
+        int[] weights = new int[edges.length];
+        int count = 0;
+        for (String[] road : pendingWeightChanges) {
+            int fromId = graph.idOf(road[0]);
+            int toId = graph.idOf(road[1]);
+            if (fromId < 0 || toId < 0) {
+                return null;
+            }
+            int distance = model().get(road[0]).getConnections().get(model().get(road[1]));
+            for (int direction = 0; direction < 2; direction++) {
+                int from = direction == 0 ? fromId : toId;
+                int to = direction == 0 ? toId : fromId;
+                int edge = graph.firstEdge(from);
+                while (edge < graph.endEdge(from) && graph.target(edge) != to) {
+                    edge++;
+                }
+                if (edge == graph.endEdge(from)) {
+                    return null;
+                }
+                edges[count] = edge;
+                weights[count++] = distance;
+            }
+        }
+        return graph.withWeights(edges, weights);
+    }
+
+    // Remembers a changed road for the registered trees, called under writeLock
+    private void roadChanged(String from, String to) {
+        if (!registeredSources.isEmpty()) {
+            pendingRoads.add(new String[] {from, to});
+        }
+    }
+
+    // Repairs every registered tree for the snapshot about to be published.
+    // Only changed roads are looked at, unless locations were removed or
+    // merged in, which can move ids. A deleted source is dropped.
+    private void maintainRegisteredTrees(NetworkSnapshot next) {
+        RoadGraph graph = next.graph;
+        int[] fromIds = new int[pendingRoads.size()];
+        int[] toIds = new int[pendingRoads.size()];
+        boolean recompute = pendingRecompute;
+        for (int i = 0; i < fromIds.length && !recompute; i++) {
+            fromIds[i] = graph.idOf(pendingRoads.get(i)[0]);
+            toIds[i] = graph.idOf(pendingRoads.get(i)[1]);
+            recompute = fromIds[i] < 0 || toIds[i] < 0;
+        }
+        pendingRoads.clear();
+        pendingRecompute = false;
+
+        Iterator<IncrementalShortestPaths> sources = registeredSources.values().iterator();
+        while (sources.hasNext()) {
+            IncrementalShortestPaths tree = sources.next();
+            if (graph.idOf(tree.getSource()) < 0) {
+                sources.remove();
+            } else {
+                if (recompute || !tree.isComputed()) {
+                    tree.recompute(graph);
+                } else {
+                    tree.repair(graph, fromIds, toIds);
+                }
+                next.putMaintainedTree(tree.toTree(graph));
+            }
+        }
+    }
+
+    // Keeps the shortest path tree of source up to date across edits, so
+    // routes from it are answered without a search even right after roads
+    // change. Meant for depots and other locations most routes start from.
+    public void registerSource(String source) {
+        synchronized (writeLock) {
+            if (!model().containsKey(source)) {
+                throw new IllegalArgumentException("Location doesn't exist: " + source);
+            }
+            if (registeredSources.containsKey(source)) {
+                return;
+            }
+            IncrementalShortestPaths tree = new IncrementalShortestPaths(source);
+            registeredSources.put(source, tree);
+            // Inside a batch the tree is computed when the batch is published
+            if (!pendingChanges) {
+                NetworkSnapshot current = snapshot;
+                tree.recompute(current.graph);
+                current.putMaintainedTree(tree.toTree(current.graph));
+            }
+        }
+    }
+
+    public void unregisterSource(String source) {
+        synchronized (writeLock) {
+            if (registeredSources.remove(source) == null) {
+                throw new IllegalArgumentException("Not a registered source: " + source);
+            }
+            snapshot.removeMaintainedTree(source);
+        }
+    }
+
+    public Set<String> getRegisteredSources() {
+        synchronized (writeLock) {
+            return new LinkedHashSet<>(registeredSources.keySet());
+        }
+    }
+
+    // Editable locations, rebuilt from the snapshot the first time they're needed
+    // after a bulk load so loading doesn't pay for Location objects up front
+    private Map<String, Location> model() {
+        if (locations == null) {
+            RoadGraph graph = snapshot.graph;
+            Location[] byId = new Location[graph.size()];
+            locations = new LinkedHashMap<>(graph.size() * 2);
+            for (int id = 0; id < graph.size(); id++) {
+                byId[id] = new Location(graph.nameOf(id));
+                locations.put(byId[id].getName(), byId[id]);
+            }
+            for (int id = 0; id < graph.size(); id++) {
+                for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                    byId[id].addConnection(byId[graph.target(edge)], graph.weight(edge));
+                }
+            }
+        }
+        return locations;
     }
 
     // Adds a new location to network
     public void addLocation(String name) {
-        if (locations.containsKey(name)) {
-            throw new IllegalArgumentException("Location already exists: " + name);
+        synchronized (writeLock) {
+            Map<String, Location> locations = model();
+            if (locations.containsKey(name)) {
+                throw new IllegalArgumentException("Location already exists: " + name);
+            }
+            locations.put(name, new Location(name));
+            // A new location has no roads yet, so cached routes stay valid
+            changed();
+            record("location", name);
         }
-        locations.put(name, new Location(name));
+        commitJournal();
     }
 
     // Connects two locations with a road
@@ -26,205 +419,608 @@ public class LogisticsManager {
             throw new IllegalArgumentException("Distance must be positive");
         }
 
-        Location fromLoc = locations.get(from);
-        Location toLoc = locations.get(to);
+        synchronized (writeLock) {
+            Location fromLoc = model().get(from);
+            Location toLoc = model().get(to);
 
-        if (fromLoc == null || toLoc == null) {
-            throw new IllegalArgumentException("Both locations must exist");
+            if (fromLoc == null || toLoc == null) {
+                throw new IllegalArgumentException("Both locations must exist");
+            }
+
+            // Add road in both directions
+            fromLoc.addConnection(toLoc, distance);
+            toLoc.addConnection(fromLoc, distance);
+            // A new road can shorten any route, so every cached entry is stale
+            routeCache.invalidateBefore(pendingVersion());
+            roadChanged(from, to);
+            pendingJoins.add(new String[] {from, to});
+            changed();
+            record("road", from, to, String.valueOf(distance));
+        }
+        commitJournal();
+    }
+
+    // Changes the length of an existing road in both directions, e.g. while
+    // an incident slows traffic down, without removing and adding it again
+    public void updateRoadDistance(String from, String to, int distance) {
+        if (distance <= 0) {
+            throw new IllegalArgumentException("Distance must be positive");
         }
 
-        // Add road in both directions
-        fromLoc.addConnection(toLoc, distance);
-        toLoc.addConnection(fromLoc, distance);
+        synchronized (writeLock) {
+            Location fromLoc = model().get(from);
+            Location toLoc = model().get(to);
+
+            if (fromLoc == null || toLoc == null) {
+                throw new IllegalArgumentException("Both locations must exist");
+            }
+            Integer current = fromLoc.getConnections().get(toLoc);
+            if (current == null) {
+                throw new IllegalArgumentException("No road between " + from + " and " + to);
+            }
+            if (current == distance) {
+                return;
+            }
+
+            fromLoc.addConnection(toLoc, distance);
+            toLoc.addConnection(fromLoc, distance);
+            if (distance < current) {
+                // A shorter road can shorten any route
+                routeCache.invalidateBefore(pendingVersion());
+            } else {
+                // Only routes driving along this road get longer
+                routeCache.invalidateRoad(from, to, pendingVersion());
+            }
+            roadChanged(from, to);
+            weightChanged(from, to);
+            // Replaying a road record overwrites the distance
+            record("road", from, to, String.valueOf(distance));
+        }
+        commitJournal();
     }
 
-    // Uses binary heap to find the shortest path between locations
+    // Sets how long the road from -> to takes over the day, null goes back to
+    // the free-flow time. Only this direction changes, as rush hour traffic
+    // usually isn't the same both ways. Profiles aren't saved to the network
+    // files and go away with their road.
+    public void setTravelTimeProfile(String from, String to, TravelTimeProfile profile) {
+        synchronized (writeLock) {
+            Location fromLoc = model().get(from);
+            Location toLoc = model().get(to);
+
+            if (fromLoc == null || toLoc == null) {
+                throw new IllegalArgumentException("Both locations must exist");
+            }
+            if (!fromLoc.getConnections().containsKey(toLoc)) {
+                throw new IllegalArgumentException("No road between " + from + " and " + to);
+            }
+            fromLoc.setTravelTimeProfile(toLoc, profile);
+            // Distances don't change, so cached routes and trees stay valid
+            pendingProfiles = true;
+            publishOrDefer();
+        }
+    }
+
+    // Profile of the road from -> to, null if it has none
+    public TravelTimeProfile getTravelTimeProfile(String from, String to) {
+        synchronized (writeLock) {
+            Location fromLoc = model().get(from);
+            Location toLoc = model().get(to);
+            return fromLoc == null || toLoc == null ? null : fromLoc.getTravelTimeProfile(toLoc);
+        }
+    }
+
+    // Speed on roads without a profile, road lengths are taken as km
+    public void setFreeFlowSpeed(int kmPerHour) {
+        if (kmPerHour <= 0) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        this.freeFlowSpeed = kmPerHour;
+    }
+
+    public int getFreeFlowSpeed() {
+        return freeFlowSpeed;
+    }
+
+    // Finds the route that arrives first when leaving start at departure
+    // (seconds from midnight of the first day, later days wrap the profiles).
+    // Returns null if end can't be reached.
+    public TimedRoute findFastestRoute(String start, String end, long departure) {
+        NetworkSnapshot current = snapshot;
+        RoadGraph graph = current.graph;
+        int startId = graph.idOf(start);
+        int endId = graph.idOf(end);
+        if (startId < 0 || endId < 0) {
+            throw new IllegalArgumentException("Location doesn't exist: " + (startId < 0 ? start : end));
+        }
+        if (!current.components().connected(startId, endId)) {
+            return null;
+        }
+
+        DijkstraSearch search = DijkstraSearch.get();
+        search.reset(graph, searchListener);
+        search.runDepartingAt(startId, endId, departure, current.travelTimes, freeFlowSpeed);
+        List<String> path = new ArrayList<>();
+        long arrival = search.pathTo(endId, path);
+        if (arrival == DijkstraSearch.UNREACHABLE) {
+            return null;
+        }
+        return new TimedRoute(path, departure, arrival);
+    }
+
+    // Finds the shortest path using the current search mode
     public List<String> findShortestPath(String start, String end) {
-        if (!locations.containsKey(start) || !locations.containsKey(end)) {
+        return findShortestPath(start, end, searchMode);
+    }
+
+    // Finds the shortest path with the given strategy, all modes return a
+    // route of the same length but may break ties between equal routes differently
+    public List<String> findShortestPath(String start, String end, SearchMode mode) {
+        NetworkSnapshot current = snapshot;
+        int startId = current.graph.idOf(start);
+        int endId = current.graph.idOf(end);
+        if (startId < 0 || endId < 0 || startId == endId) {
+            return null;
+        }
+        // Different components have no route, no search needed
+        if (!current.components().connected(startId, endId)) {
             return null;
         }
+        ShortestPathTree tree = current.maintainedTree(start);
+        if (tree != null) {
+            return tree.getPath(end);
+        }
+        return lookupRoute(current, start, end, mode).copyPath();
+    }
 
-        // Setup for Dijkstra's algorithm
-        Map<String, Integer> distances = new HashMap<>();
-        Map<String, String> previous = new HashMap<>();
-        BinaryHeap<Node> minHeap = new BinaryHeap<>();
+    // Gets the length of the shortest path, or -1 if there's no route
+    public long getShortestDistance(String start, String end) {
+        return getShortestDistance(start, end, searchMode);
+    }
 
-        // Set all initial distances to infinity except start
-        for (String location : locations.keySet()) {
-            distances.put(location, Integer.MAX_VALUE);
+    public long getShortestDistance(String start, String end, SearchMode mode) {
+        NetworkSnapshot current = snapshot;
+        int startId = current.graph.idOf(start);
+        int endId = current.graph.idOf(end);
+        if (startId < 0 || endId < 0) {
+            return -1;
+        }
+        if (startId == endId) {
+            return 0;
+        }
+        if (!current.components().connected(startId, endId)) {
+            return -1;
+        }
+        ShortestPathTree tree = current.maintainedTree(start);
+        if (tree != null) {
+            return tree.getDistance(end);
         }
-        distances.put(start, 0);
 
-        // Start with starting location
-        minHeap.insert(new Node(start, 0));
+        long distance = lookupRoute(current, start, end, mode).distance;
+        return distance == DijkstraSearch.UNREACHABLE ? -1 : distance;
+    }
 
-        // Main loop of Dijkstra's algorithm
-        System.out.println("\nCalculating shortest path using Binary Heap:");
-        while (!minHeap.isEmpty()) {
-            Node current = minHeap.extractMin();
-            String currentLocation = current.getLocation();
-            
-            System.out.println("Looking at: " + currentLocation + 
-                             " (distance so far: " + current.getDistance() + ")");
+    // Serves a route from the cache or computes and caches it
+    private RouteCache.Entry lookupRoute(NetworkSnapshot current, String start, String end, SearchMode mode) {
+        RouteCache.Entry entry = routeCache.get(start, end);
+        if (entry == null || entry.version > current.version) {
+            List<String> path = new ArrayList<>();
+            long distance = route(current, current.graph.idOf(start), current.graph.idOf(end), mode, path);
+            entry = new RouteCache.Entry(distance == DijkstraSearch.UNREACHABLE ? null : path,
+                                         distance, current.version);
+            routeCache.put(start, end, entry);
+        }
+        return entry;
+    }
 
-            if (currentLocation.equals(end)) {
-                break;
+    // Finds the closest of several sources to target with one multi-source
+    // search, e.g. the nearest depot. Sources that aren't in the network are
+    // ignored; returns null if none of them can reach target.
+    public NearestRoute findNearestRoute(Collection<String> sources, String target) {
+        NetworkSnapshot current = snapshot;
+        RoadGraph graph = current.graph;
+        int targetId = graph.idOf(target);
+        if (targetId < 0) {
+            throw new IllegalArgumentException("Location doesn't exist: " + target);
+        }
+        ConnectedComponents components = current.components();
+        int[] sourceIds = new int[sources.size()];
+        int count = 0;
+        for (String source : sources) {
+            int id = graph.idOf(source);
+            // Sources in another component can't reach target
+            if (id >= 0 && components.connected(id, targetId)) {
+                sourceIds[count++] = id;
             }
+        }
+        if (count == 0) {
+            return null;
+        }
+        sourceIds = Arrays.copyOf(sourceIds, count);
 
-            if (current.getDistance() > distances.get(currentLocation)) {
-                continue;
-            }
+        DijkstraSearch search = DijkstraSearch.get();
+        search.reset(graph, searchListener);
+        search.runFromSources(sourceIds, targetId);
+        List<String> path = new ArrayList<>();
+        long distance = search.pathTo(targetId, path);
+        if (distance == DijkstraSearch.UNREACHABLE) {
+            return null;
+        }
+        return new NearestRoute(path, distance);
+    }
 
-            // Check all connected locations
-            Location currentLoc = locations.get(currentLocation);
-            Map<Location, Integer> connections = currentLoc.getConnections();
+    // Up to k different routes without loops from start to end, shortest
+    // first, e.g. to offer another route when one is turned down. Empty if
+    // end can't be reached or is start itself.
+    public List<AlternativeRoute> findAlternativeRoutes(String start, String end, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of routes must be positive");
+        }
+        NetworkSnapshot current = snapshot;
+        RoadGraph graph = current.graph;
+        int startId = graph.idOf(start);
+        int endId = graph.idOf(end);
+        if (startId < 0 || endId < 0) {
+            throw new IllegalArgumentException("Location doesn't exist: " + (startId < 0 ? start : end));
+        }
+        if (startId == endId || !current.components().connected(startId, endId)) {
+            return new ArrayList<>();
+        }
+        // The tree from end is cached, so asking again for the same
+        // destination doesn't search the whole network again
+        ShortestPathTree toEnd = current.tree(endId, searchListener);
+        return new KShortestPaths(graph, startId, endId, toEnd, searchListener).find(k);
+    }
 
-            for (Map.Entry<Location, Integer> connection : connections.entrySet()) {
-                String nextLocation = connection.getKey().getName();
-                int newDistance = distances.get(currentLocation) + connection.getValue();
+    // Runs one search from source and returns distances and routes to every
+    // location; the tree is cached until the network changes
+    public ShortestPathTree getShortestPathTree(String source) {
+        NetworkSnapshot current = snapshot;
+        int sourceId = current.graph.idOf(source);
+        if (sourceId < 0) {
+            throw new IllegalArgumentException("Location doesn't exist: " + source);
+        }
+        return current.tree(sourceId, searchListener);
+    }
 
-                // If found a shorter path, update it
-                if (newDistance < distances.get(nextLocation)) {
-                    System.out.println("Found better path to " + nextLocation + 
-                                     " (new distance: " + newDistance + ")");
-                    distances.put(nextLocation, newDistance);
-                    previous.put(nextLocation, currentLocation);
-                    minHeap.insert(new Node(nextLocation, newDistance));
-                }
+    // Computes distances from every source to every target in parallel
+    public DistanceMatrix computeDistanceMatrix(List<String> sources, List<String> targets) {
+        return computeDistanceMatrix(sources, targets, ForkJoinPool.commonPool());
+    }
+
+    // Runs one search per source on the given pool. Workers share the
+    // read-only snapshot and each uses its own thread's search state.
+    public DistanceMatrix computeDistanceMatrix(List<String> sources, List<String> targets,
+                                                ForkJoinPool pool) {
+        return computeMatrix(snapshot.graph, sources, targets, pool, false);
+    }
+
+    // Same on graph, a snapshot taken earlier with getGraph(), keeping the
+    // routes too, so a plan can check its locations, optimise on the
+    // distances and read back the routes all on one version of the network
+    // and without searching again
+    public DistanceMatrix computeRouteMatrix(RoadGraph graph, List<String> sources, List<String> targets) {
+        return computeMatrix(graph, sources, targets, ForkJoinPool.commonPool(), true);
+    }
+
+    private DistanceMatrix computeMatrix(RoadGraph graph, List<String> sources, List<String> targets,
+                                         ForkJoinPool pool, boolean keepRoutes) {
+        int[] sourceIds = toIds(graph, sources);
+        int[] targetIds = toIds(graph, targets);
+
+        boolean[] isTarget = new boolean[graph.size()];
+        int distinctTargets = 0;
+        for (int id : targetIds) {
+            if (!isTarget[id]) {
+                isTarget[id] = true;
+                distinctTargets++;
             }
         }
+        int targetCount = distinctTargets;
+        int columns = targetIds.length;
+        long[] distances = new long[sourceIds.length * columns];
+        int[][] routeNodes = keepRoutes ? new int[sourceIds.length][] : null;
+        int[][] routeParents = keepRoutes ? new int[sourceIds.length][] : null;
+        int[][] routeEnds = keepRoutes ? new int[sourceIds.length][] : null;
+        RouteSearchListener listener = searchListener;
 
-        // If couldn't reach the end, return null
-        if (!previous.containsKey(end)) {
-            return null;
+        pool.submit(() -> IntStream.range(0, sourceIds.length).parallel().forEach(row -> {
+            DijkstraSearch search = DijkstraSearch.get();
+            search.reset(graph, listener);
+            search.runToTargets(sourceIds[row], isTarget, targetCount);
+            for (int column = 0; column < columns; column++) {
+                long distance = search.distance(targetIds[column]);
+                distances[row * columns + column] =
+                    distance == DijkstraSearch.UNREACHABLE ? -1 : distance;
+            }
+            if (keepRoutes) {
+                DistanceMatrix.keepRoutes(search, targetIds, row, routeNodes, routeParents, routeEnds);
+            }
+        })).join();
+
+        if (keepRoutes) {
+            return new DistanceMatrix(sources, targets, distances, graph, routeNodes, routeParents, routeEnds);
         }
+        return new DistanceMatrix(sources, targets, distances);
+    }
 
-        // Build the path from end to start
-        List<String> path = new ArrayList<>();
-        String current = end;
-        while (current != null) {
-            path.add(0, current);
-            current = previous.get(current);
+    private static int[] toIds(RoadGraph graph, List<String> names) {
+        int[] ids = new int[names.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.idOf(names.get(i));
+            if (ids[i] < 0) {
+                throw new IllegalArgumentException("Location doesn't exist: " + names.get(i));
+            }
         }
+        return ids;
+    }
 
-        return path;
+    // Runs one query, appending the route to pathOut unless it's null
+    private long route(NetworkSnapshot current, int startId, int endId, SearchMode mode,
+                       List<String> pathOut) {
+        RoadGraph graph = current.graph;
+        RouteSearchListener listener = searchListener;
+        // Search state is reused between calls on the same thread
+        switch (mode) {
+            case BIDIRECTIONAL:
+                return BidirectionalSearch.search(graph, listener, startId, endId, pathOut);
+            case CONTRACTION_HIERARCHY:
+                return current.hierarchy().query(startId, endId, listener, pathOut);
+            case ASTAR: {
+                // Landmarks are built with the same thread's search state, so do it first
+                RouteHeuristic heuristic = current.heuristic(heuristicFactory);
+                DijkstraSearch search = DijkstraSearch.get();
+                search.reset(graph, listener);
+                search.runAStar(startId, endId, heuristic);
+                return search.pathTo(endId, pathOut);
+            }
+            default: {
+                DijkstraSearch search = DijkstraSearch.get();
+                search.reset(graph, listener);
+                search.run(startId, endId);
+                return search.pathTo(endId, pathOut);
+            }
+        }
     }
 
     // Removes a location and all its roads
     public void deleteLocation(String name) {
-        Location location = locations.get(name);
-        if (location == null) {
-            throw new IllegalArgumentException("Location doesn't exist: " + name);
-        }
+        deleteLocations(Collections.singletonList(name));
+    }
 
-        // Remove all roads to this location
-        for (Location other : locations.values()) {
-            other.removeConnection(location);
-        }
+    // Removes several locations and their roads as one published edit.
+    // Nothing is removed if any of the names doesn't exist.
+    public void deleteLocations(Collection<String> names) {
+        synchronized (writeLock) {
+            Map<String, Location> locations = model();
+            for (String name : names) {
+                if (!locations.containsKey(name)) {
+                    throw new IllegalArgumentException("Location doesn't exist: " + name);
+                }
+            }
+            if (names.isEmpty()) {
+                return;
+            }
 
-        locations.remove(name);
+            // Reverse adjacency means only the actual neighbours are touched.
+            // Ids are dense, so publishing still rebuilds the graph in O(V + E);
+            // batch the removals with deleteLocations to pay for it once.
+            for (String name : names) {
+                Location location = locations.remove(name);
+                if (location != null) {
+                    location.disconnect();
+                }
+            }
+            routeCache.invalidateLocations(new HashSet<>(names), pendingVersion());
+            // Later locations move down to fill the ids
+            pendingRecompute = true;
+            pendingSplits = true;
+            changed();
+            for (String name : names) {
+                record("delete-location", name);
+            }
+        }
+        commitJournal();
     }
 
     // Removes a road between two locations
     public void deleteRoad(String from, String to) {
-        Location fromLoc = locations.get(from);
-        Location toLoc = locations.get(to);
+        synchronized (writeLock) {
+            Location fromLoc = model().get(from);
+            Location toLoc = model().get(to);
+
+            if (fromLoc == null || toLoc == null) {
+                throw new IllegalArgumentException("Both locations must exist");
+            }
 
-        if (fromLoc == null || toLoc == null) {
-            throw new IllegalArgumentException("Both locations must exist");
+            fromLoc.removeConnection(toLoc);
+            toLoc.removeConnection(fromLoc);
+            // Only routes driving along this road get longer
+            routeCache.invalidateRoad(from, to, pendingVersion());
+            roadChanged(from, to);
+            pendingSplits = true;
+            changed();
+            record("delete-road", from, to);
         }
+        commitJournal();
+    }
 
-        fromLoc.removeConnection(toLoc);
-        toLoc.removeConnection(fromLoc);
+    // Whether any route connects the two locations, answered without a search
+    public boolean isReachable(String from, String to) {
+        NetworkSnapshot current = snapshot;
+        int fromId = current.graph.idOf(from);
+        int toId = current.graph.idOf(to);
+        return fromId >= 0 && toId >= 0 && current.components().connected(fromId, toId);
+    }
+
+    // Number of separate parts of the network; more than one means some
+    // locations can't be reached from others
+    public int getComponentCount() {
+        return snapshot.components().count();
+    }
+
+    // The separate parts of the network, largest first, so disconnected
+    // regions show up after edits
+    public List<List<String>> getComponents() {
+        NetworkSnapshot current = snapshot;
+        ConnectedComponents components = current.components();
+        List<List<String>> result = new ArrayList<>(components.count());
+        for (int component = 0; component < components.count(); component++) {
+            result.add(new ArrayList<>(components.componentSize(component)));
+        }
+        for (int id = 0; id < components.size(); id++) {
+            result.get(components.componentOf(id)).add(current.graph.nameOf(id));
+        }
+        result.sort((a, b) -> Integer.compare(b.size(), a.size()));
+        return result;
     }
 
     public Set<String> getAllLocationNames() {
-        return new HashSet<>(locations.keySet());
+        RoadGraph graph = snapshot.graph;
+        Set<String> names = new HashSet<>();
+        for (int id = 0; id < graph.size(); id++) {
+            names.add(graph.nameOf(id));
+        }
+        return names;
     }
 
     // Shows all locations and their connections
     public void printNetwork() {
-        for (Location location : locations.values()) {
-            System.out.print(location.getName() + ": ");
-            Map<Location, Integer> connections = location.getConnections();
-            if (connections.isEmpty()) {
+        RoadGraph graph = snapshot.graph;
+        for (int id = 0; id < graph.size(); id++) {
+            System.out.print(graph.nameOf(id) + ": ");
+            if (graph.firstEdge(id) == graph.endEdge(id)) {
                 System.out.println("No connections");
             } else {
-                List<String> connectionStrings = new ArrayList<>();
-                for (Map.Entry<Location, Integer> connection : connections.entrySet()) {
-                    connectionStrings.add(connection.getKey().getName() + 
-                                        "(" + connection.getValue() + ")");
-                }
-                System.out.println(String.join(", ", connectionStrings));
+                System.out.println(describeConnections(graph, id));
             }
         }
     }
 
-    // Loads the network from a file
+    // Formats the roads of a location as "Name(distance), ..."
+    private static String describeConnections(RoadGraph graph, int id) {
+        List<String> connectionStrings = new ArrayList<>();
+        for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+            connectionStrings.add(graph.nameOf(graph.target(edge)) +
+                                "(" + graph.weight(edge) + ")");
+        }
+        return String.join(", ", connectionStrings);
+    }
+
+    // Loads the network from a file, published as a single new version.
+    // Malformed lines are reported with their line numbers and skipped.
     public void loadLogisticsFromFile(String filename) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
+        NetworkFileParser parser = new NetworkFileParser();
+        RoadGraph loaded;
+        try {
+            loaded = parser.parse(Paths.get(filename));
+        } catch (IOException e) {
+            System.out.println("Couldn't load the network file.");
+            return;
+        }
+        for (String error : parser.getErrors()) {
+            System.out.println("Skipped malformed entry. " + error);
+        }
+        if (parser.getErrorCount() > parser.getErrors().size()) {
+            System.out.println("... and " + (parser.getErrorCount() - parser.getErrors().size()) +
+                             " more malformed entries.");
+        }
 
-                String[] parts = line.split(":");
-                if (parts.length != 2) continue;
+        install(loaded);
+    }
 
-                String locationName = parts[0].trim();
-                if (!locations.containsKey(locationName)) {
-                    addLocation(locationName);
-                }
+    // Opens the newest binary snapshot saveNetworkSnapshot wrote for filename.
+    // The file is memory-mapped and only its header is checked, so even a
+    // large network is queryable right away; GraphSnapshotFile.verify checks
+    // the rest. Returns false if there is none or its header is corrupted.
+    public boolean loadNetworkSnapshot(String filename) {
+        RoadGraph loaded;
+        try {
+            Path latest = GraphSnapshotFile.latestGeneration(Paths.get(filename));
+            if (latest == null) {
+                throw new NoSuchFileException(filename);
+            }
+            loaded = GraphSnapshotFile.open(latest, false);
+        } catch (NoSuchFileException e) {
+            System.out.println("Couldn't load the network snapshot.");
+            return false;
+        } catch (IOException e) {
+            System.out.println("Couldn't load the network snapshot: " + e.getMessage());
+            return false;
+        }
+        install(loaded);
+        return true;
+    }
 
-                if (parts[1].trim().isEmpty()) continue;
-
-                // Process each connection for this location
-                String[] connections = parts[1].split(",");
-                for (String connection : connections) {
-                    connection = connection.trim();
-                    if (connection.matches("\\w+\\(\\d+\\)")) {
-                        String destName = connection.substring(0, connection.indexOf('('));
-                        int distance = Integer.parseInt(connection.substring(
-                            connection.indexOf('(') + 1, 
-                            connection.indexOf(')')
-                        ));
-                        
-                        if (!locations.containsKey(destName)) {
-                            addLocation(destName);
-                        }
-                        
-                        // Only add road if it doesn't exist
-                        Location fromLoc = locations.get(locationName);
-                        Location toLoc = locations.get(destName);
-                        if (!fromLoc.getConnections().containsKey(toLoc)) {
-                            addRoad(locationName, destName, distance);
-                        }
-                    }
+    // Writes the network in the binary snapshot format as a new generation
+    // of filename, never over the file this session may have mapped
+    public boolean saveNetworkSnapshot(String filename) {
+        try {
+            GraphSnapshotFile.writeGeneration(snapshot.graph, Paths.get(filename));
+            return true;
+        } catch (IOException e) {
+            System.out.println("Couldn't save the network snapshot.");
+            return false;
+        }
+    }
+
+    // Publishes a loaded graph, or merges it when there is a network already
+    private void install(RoadGraph loaded) {
+        synchronized (writeLock) {
+            boolean empty = locations == null ? snapshot.graph.size() == 0 : locations.isEmpty();
+            if (empty && batchDepth == 0) {
+                // Nothing to merge with, so the loaded graph is published as it is
+                locations = null;
+                routeCache.invalidateBefore(pendingVersion());
+                NetworkSnapshot next = new NetworkSnapshot(loaded, pendingVersion());
+                pendingRecompute = true;
+                maintainRegisteredTrees(next);
+                snapshot = next;
+            } else {
+                batch(() -> mergeNetwork(loaded));
+            }
+        }
+    }
+
+    // Adds the locations and roads of graph that aren't in the network yet
+    private void mergeNetwork(RoadGraph graph) {
+        Map<String, Location> locations = model();
+        Location[] byId = new Location[graph.size()];
+        for (int id = 0; id < graph.size(); id++) {
+            byId[id] = locations.computeIfAbsent(graph.nameOf(id), Location::new);
+        }
+        for (int id = 0; id < graph.size(); id++) {
+            for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                Location toLoc = byId[graph.target(edge)];
+                // Only add road if it doesn't exist
+                if (!byId[id].getConnections().containsKey(toLoc)) {
+                    byId[id].addConnection(toLoc, graph.weight(edge));
                 }
             }
-        } catch (IOException e) {
-            System.out.println("Couldn't load the network file.");
         }
+        routeCache.invalidateBefore(pendingVersion());
+        pendingRecompute = true;
+        pendingSplits = true;
+        changed();
     }
 
     // Saves the network to a file
-    public void saveLogisticsToFile(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            for (Location location : locations.values()) {
-                writer.print(location.getName() + ": ");
-                Map<Location, Integer> connections = location.getConnections();
-                if (connections.isEmpty()) {
+    public boolean saveLogisticsToFile(String filename) {
+        RoadGraph graph = snapshot.graph;
+        // The old file is only replaced once the new one is complete
+        boolean saved = FileHandler.writeAtomically(filename, writer -> {
+            for (int id = 0; id < graph.size(); id++) {
+                writer.print(graph.nameOf(id) + ": ");
+                if (graph.firstEdge(id) == graph.endEdge(id)) {
                     writer.println();
                 } else {
-                    List<String> connectionStrings = new ArrayList<>();
-                    for (Map.Entry<Location, Integer> connection : connections.entrySet()) {
-                        connectionStrings.add(connection.getKey().getName() + 
-                                           "(" + connection.getValue() + ")");
-                    }
-                    writer.println(String.join(", ", connectionStrings));
+                    writer.println(describeConnections(graph, id));
                 }
             }
-        } catch (IOException e) {
+        });
+        if (!saved) {
             System.out.println("Couldn't save the network file.");
         }
+        return saved;
     }
 }
\ No newline at end of file
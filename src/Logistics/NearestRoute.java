@@ -0,0 +1,29 @@
+package Logistics;
+
+import java.util.Collections;
+import java.util.List;
+
+// Route from the closest of several sources, see LogisticsManager.findNearestRoute
+public class NearestRoute {
+    private final List<String> path;
+    private final long distance;
+
+    NearestRoute(List<String> path, long distance) {
+        this.path = Collections.unmodifiableList(path);
+        this.distance = distance;
+    }
+
+    // The source the route starts at
+    public String getSource() {
+        return path.get(0);
+    }
+
+    // Locations from the source to the target, just the target if it is a source itself
+    public List<String> getPath() {
+        return path;
+    }
+
+    public long getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,332 @@
+package Logistics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Single-pass reader for the text network format:
+//     Name: Other Name(12), Third-Name(7)
+// Bytes are parsed straight out of a reusable read buffer, every location
+// name is decoded into a String only once, and roads go into primitive
+// arrays that become a RoadGraph without going through Location objects.
+// Like the old loader, the first distance seen for a road wins.
+public class NetworkFileParser {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    // Location names in order of first appearance
+    private final NameTable names = new NameTable();
+    // One entry per "Name(distance)" item, the reverse direction is implied
+    private int[] entryFrom = new int[1024];
+    private int[] entryTo = new int[1024];
+    private int[] entryWeight = new int[1024];
+    private int entryCount;
+
+    private final List<String> errors = new ArrayList<>();
+    private int errorCount;
+    private int lineNumber;
+
+    // Parses the whole file into a routing graph
+    public RoadGraph parse(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] data = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int lineStart = 0;
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(buffer) < 0;
+                int limit = buffer.position();
+                int index = lineStart;
+                while (true) {
+                    int newline = indexOf(data, (byte) '\n', index, limit);
+                    if (newline < 0) {
+                        break;
+                    }
+                    parseLine(data, lineStart, newline);
+                    lineStart = newline + 1;
+                    index = lineStart;
+                }
+                if (eof) {
+                    if (lineStart < limit) {
+                        parseLine(data, lineStart, limit);
+                    }
+                    break;
+                }
+
+                // Keep the unfinished line and make room for more bytes
+                int remaining = limit - lineStart;
+                if (remaining == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                } else {
+                    System.arraycopy(data, lineStart, data, 0, remaining);
+                }
+                lineStart = 0;
+                buffer = ByteBuffer.wrap(data);
+                buffer.position(remaining);
+            }
+        }
+        return buildGraph();
+    }
+
+    // Malformed lines with their line numbers, capped at the first 100
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    private void parseLine(byte[] data, int start, int end) {
+        lineNumber++;
+        int colon = indexOf(data, (byte) ':', start, end);
+        if (colon < 0) {
+            if (skipSpace(data, start, end) < end) {
+                error("missing ':' after the location name");
+            }
+            return;
+        }
+        int nameStart = skipSpace(data, start, colon);
+        int nameEnd = trimEnd(data, nameStart, colon);
+        if (nameStart == nameEnd) {
+            error("empty location name");
+            return;
+        }
+        int from = names.intern(data, nameStart, nameEnd);
+
+        int index = colon + 1;
+        if (skipSpace(data, index, end) == trimEnd(data, index, end)) {
+            return;
+        }
+        while (index <= end) {
+            int comma = indexOf(data, (byte) ',', index, end);
+            int itemEnd = comma < 0 ? end : comma;
+            parseConnection(data, from, index, itemEnd);
+            index = itemEnd + 1;
+        }
+    }
+
+    // Parses "Name(123)" and records it, reports anything else
+    private void parseConnection(byte[] data, int from, int start, int end) {
+        start = skipSpace(data, start, end);
+        end = trimEnd(data, start, end);
+        int open = lastIndexOf(data, (byte) '(', start, end);
+        if (open < 0 || end - start < 4 || data[end - 1] != ')') {
+            error("expected Name(distance) but found '" + text(data, start, end) + "'");
+            return;
+        }
+        int nameEnd = trimEnd(data, start, open);
+        if (nameEnd == start) {
+            error("missing destination name in '" + text(data, start, end) + "'");
+            return;
+        }
+
+        long distance = 0;
+        int digits = 0;
+        for (int i = open + 1; i < end - 1; i++) {
+            byte b = data[i];
+            if (b < '0' || b > '9' || distance > Integer.MAX_VALUE) {
+                digits = 0;
+                break;
+            }
+            distance = distance * 10 + (b - '0');
+            digits++;
+        }
+        if (digits == 0 || distance <= 0 || distance > Integer.MAX_VALUE) {
+            error("invalid distance in '" + text(data, start, end) + "'");
+            return;
+        }
+
+        int to = names.intern(data, start, nameEnd);
+        if (entryCount == entryFrom.length) {
+            int capacity = entryCount * 2;
+            entryFrom = Arrays.copyOf(entryFrom, capacity);
+            entryTo = Arrays.copyOf(entryTo, capacity);
+            entryWeight = Arrays.copyOf(entryWeight, capacity);
+        }
+        entryFrom[entryCount] = from;
+        entryTo[entryCount] = to;
+        entryWeight[entryCount] = (int) distance;
+        entryCount++;
+    }
+
+    // Counting sort into CSR, then drops repeated roads keeping the first one
+    private RoadGraph buildGraph() {
+        int size = names.size();
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < entryCount; i++) {
+            offsets[entryFrom[i] + 1]++;
+            offsets[entryTo[i] + 1]++;
+        }
+        for (int id = 0; id < size; id++) {
+            offsets[id + 1] += offsets[id];
+        }
+
+        int[] targets = new int[offsets[size]];
+        int[] weights = new int[offsets[size]];
+        int[] fill = Arrays.copyOf(offsets, size);
+        for (int i = 0; i < entryCount; i++) {
+            int from = entryFrom[i];
+            int to = entryTo[i];
+            targets[fill[from]] = to;
+            weights[fill[from]++] = entryWeight[i];
+            targets[fill[to]] = from;
+            weights[fill[to]++] = entryWeight[i];
+        }
+
+        // Segments are in file order, so the first edge to a target is the one to keep
+        int[] seenBy = new int[size];
+        Arrays.fill(seenBy, -1);
+        int kept = 0;
+        int segmentStart = 0;
+        for (int id = 0; id < size; id++) {
+            int segmentEnd = offsets[id + 1];
+            offsets[id] = kept;
+            for (int edge = segmentStart; edge < segmentEnd; edge++) {
+                if (seenBy[targets[edge]] != id) {
+                    seenBy[targets[edge]] = id;
+                    targets[kept] = targets[edge];
+                    weights[kept++] = weights[edge];
+                }
+            }
+            segmentStart = segmentEnd;
+        }
+        offsets[size] = kept;
+
+        String[] nameArray = names.toArray();
+        Map<String, Integer> ids = new HashMap<>(size * 2);
+        for (int id = 0; id < size; id++) {
+            ids.put(nameArray[id], id);
+        }
+        return RoadGraph.of(nameArray, ids, offsets,
+                            Arrays.copyOf(targets, kept), Arrays.copyOf(weights, kept));
+    }
+
+    private void error(String message) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("Line " + lineNumber + ": " + message);
+        }
+    }
+
+    private static String text(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(byte[] data, byte value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] data, byte value, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpace(byte[] data, int start, int end) {
+        while (start < end && (data[start] & 0xff) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    // End of the range without trailing whitespace (including '\r')
+    private static int trimEnd(byte[] data, int start, int end) {
+        while (end > start && (data[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // Open addressing table from UTF-8 name bytes to ids
+    private static final class NameTable {
+        private int[] slots = new int[1024];
+        private int[] hashes = new int[1024];
+        private byte[][] keys = new byte[256][];
+        private String[] strings = new String[256];
+        private int size;
+
+        NameTable() {
+            Arrays.fill(slots, -1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(strings, size);
+        }
+
+        // Returns the id of the name, adding it on first sight
+        int intern(byte[] data, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + data[i];
+            }
+            int mask = slots.length - 1;
+            int slot = mix(hash) & mask;
+            while (slots[slot] >= 0) {
+                int id = slots[slot];
+                if (hashes[slot] == hash &&
+                    Arrays.equals(keys[id], 0, keys[id].length, data, start, end)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int id = size++;
+            if (id == keys.length) {
+                keys = Arrays.copyOf(keys, id * 2);
+                strings = Arrays.copyOf(strings, id * 2);
+            }
+            keys[id] = Arrays.copyOfRange(data, start, end);
+            strings[id] = new String(keys[id], StandardCharsets.UTF_8);
+            slots[slot] = id;
+            hashes[slot] = hash;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private void rehash() {
+            int[] oldSlots = slots;
+            int[] oldHashes = hashes;
+            slots = new int[oldSlots.length * 2];
+            hashes = new int[oldSlots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] >= 0) {
+                    int slot = mix(oldHashes[i]) & mask;
+                    while (slots[slot] >= 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = oldSlots[i];
+                    hashes[slot] = oldHashes[i];
+                }
+            }
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package Logistics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// One published version of the network: the routing graph plus the data
+// derived from it. The graph never changes after publication; derived data
+// is built lazily on first use and shared by all reader threads.
+final class NetworkSnapshot {
+    private static final int MAX_CACHED_TREES = 64;
+
+    final RoadGraph graph;
+    final long version;
+    // Packed travel time profiles, null when every road drives at free flow
+    final TravelTimes travelTimes;
+
+    private RouteHeuristic heuristic;
+    private Function<RoadGraph, RouteHeuristic> heuristicSource;
+    private volatile ContractionHierarchy hierarchy;
+    private volatile ConnectedComponents components;
+    // Shortest path trees of recently used sources
+    private final Map<String, ShortestPathTree> trees =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ShortestPathTree> eldest) {
+                return size() > MAX_CACHED_TREES;
+            }
+        };
+    // Trees of registered sources, kept up to date by the manager on every edit
+    private final Map<String, ShortestPathTree> maintainedTrees = new ConcurrentHashMap<>();
+
+    NetworkSnapshot(RoadGraph graph, long version) {
+        this(graph, version, null, null);
+    }
+
+    // components may be null, then they're labelled on first use
+    NetworkSnapshot(RoadGraph graph, long version, TravelTimes travelTimes, ConnectedComponents components) {
+        this.graph = graph;
+        this.version = version;
+        this.travelTimes = travelTimes;
+        this.components = components;
+    }
+
+    // A* heuristic from factory, rebuilt only if the factory was replaced
+    synchronized RouteHeuristic heuristic(Function<RoadGraph, RouteHeuristic> factory) {
+        if (heuristic == null || heuristicSource != factory) {
+            heuristic = factory.apply(graph);
+            heuristicSource = factory;
+        }
+        return heuristic;
+    }
+
+    ContractionHierarchy hierarchy() {
+        ContractionHierarchy result = hierarchy;
+        if (result == null) {
+            synchronized (this) {
+                result = hierarchy;
+                if (result == null) {
+                    result = ContractionHierarchy.build(graph);
+                    hierarchy = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    ConnectedComponents components() {
+        ConnectedComponents result = components;
+        if (result == null) {
+            synchronized (this) {
+                result = components;
+                if (result == null) {
+                    result = ConnectedComponents.label(graph);
+                    components = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Components if they're known already, without labelling the graph
+    ConnectedComponents knownComponents() {
+        return components;
+    }
+
+    void putMaintainedTree(ShortestPathTree tree) {
+        maintainedTrees.put(tree.getSource(), tree);
+    }
+
+    void removeMaintainedTree(String source) {
+        maintainedTrees.remove(source);
+    }
+
+    // Tree of a registered source, null for any other location
+    ShortestPathTree maintainedTree(String source) {
+        return maintainedTrees.get(source);
+    }
+
+    // Cached tree for source, computed outside the lock so readers don't queue up
+    ShortestPathTree tree(int source, RouteSearchListener listener) {
+        String name = graph.nameOf(source);
+        ShortestPathTree maintained = maintainedTrees.get(name);
+        if (maintained != null) {
+            return maintained;
+        }
+        synchronized (trees) {
+            ShortestPathTree tree = trees.get(name);
+            if (tree != null) {
+                return tree;
+            }
+        }
+        ShortestPathTree tree = ShortestPathTree.compute(graph, source, listener);
+        synchronized (trees) {
+            trees.putIfAbsent(name, tree);
+        }
+        return tree;
+    }
+}
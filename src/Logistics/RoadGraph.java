@@ -0,0 +1,139 @@
+package Logistics;
+
+import java.nio.IntBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Frozen snapshot of the network stored as compressed sparse rows.
+// Location i has its roads in edges [offsets[i], offsets[i + 1]).
+// A graph opened from a binary snapshot reads its rows from the mapped file
+// instead, then the arrays are null and the buffers are used.
+public final class RoadGraph {
+    private final LocationNames names;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final IntBuffer mappedOffsets;
+    private final IntBuffer mappedTargets;
+    private final IntBuffer mappedWeights;
+
+    private RoadGraph(LocationNames names, int[] offsets, int[] targets, int[] weights) {
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.mappedOffsets = null;
+        this.mappedTargets = null;
+        this.mappedWeights = null;
+    }
+
+    private RoadGraph(LocationNames names, IntBuffer offsets, IntBuffer targets, IntBuffer weights) {
+        this.names = names;
+        this.offsets = null;
+        this.targets = null;
+        this.weights = null;
+        this.mappedOffsets = offsets;
+        this.mappedTargets = targets;
+        this.mappedWeights = weights;
+    }
+
+    // Builds a snapshot from the editable locations, ids follow iteration order
+    static RoadGraph build(Collection<Location> locations) {
+        int count = locations.size();
+        String[] names = new String[count];
+        Map<String, Integer> ids = new HashMap<>(count * 2);
+        int edgeCount = 0;
+        int id = 0;
+        for (Location location : locations) {
+            names[id] = location.getName();
+            ids.put(location.getName(), id);
+            edgeCount += location.getConnections().size();
+            id++;
+        }
+
+        int[] offsets = new int[count + 1];
+        int[] targets = new int[edgeCount];
+        int[] weights = new int[edgeCount];
+        int edge = 0;
+        id = 0;
+        for (Location location : locations) {
+            offsets[id++] = edge;
+            for (Map.Entry<Location, Integer> connection : location.getConnections().entrySet()) {
+                targets[edge] = ids.get(connection.getKey().getName());
+                weights[edge] = connection.getValue();
+                edge++;
+            }
+        }
+        offsets[count] = edge;
+
+        return of(names, ids, offsets, targets, weights);
+    }
+
+    // Wraps arrays that already are in CSR form, e.g. from a file parser
+    static RoadGraph of(String[] names, Map<String, Integer> ids,
+                        int[] offsets, int[] targets, int[] weights) {
+        return new RoadGraph(LocationNames.of(names, ids), offsets, targets, weights);
+    }
+
+    // Wraps CSR buffers, used for graphs mapped from a snapshot file
+    static RoadGraph of(LocationNames names, IntBuffer offsets, IntBuffer targets, IntBuffer weights) {
+        return new RoadGraph(names, offsets, targets, weights);
+    }
+
+    // Same locations and ids with a different set of edges. Weights may be
+    // null when the caller keeps the lengths itself, then weight() is unusable.
+    RoadGraph withEdges(int[] offsets, int[] targets, int[] weights) {
+        return new RoadGraph(names, offsets, targets, weights);
+    }
+
+    // Same roads with some lengths changed: edges[i] gets newWeights[i].
+    // Only the weights are copied. Null for a mapped graph.
+    RoadGraph withWeights(int[] edges, int[] newWeights) {
+        if (weights == null) {
+            return null;
+        }
+        int[] patched = weights.clone();
+        for (int i = 0; i < edges.length; i++) {
+            patched[edges[i]] = newWeights[i];
+        }
+        return new RoadGraph(names, offsets, targets, patched);
+    }
+
+    // Number of locations in the snapshot
+    public int size() {
+        return names.size();
+    }
+
+    // Number of directed edges (every road is stored once per direction)
+    public int edgeCount() {
+        return targets != null ? targets.length : mappedTargets.limit();
+    }
+
+    // Returns the id of a location or -1 if it's not in the snapshot
+    public int idOf(String name) {
+        return names.idOf(name);
+    }
+
+    public String nameOf(int id) {
+        return names.nameOf(id);
+    }
+
+    // First edge index of a location
+    public int firstEdge(int id) {
+        return offsets != null ? offsets[id] : mappedOffsets.get(id);
+    }
+
+    // One past the last edge index of a location
+    public int endEdge(int id) {
+        return offsets != null ? offsets[id + 1] : mappedOffsets.get(id + 1);
+    }
+
+    public int target(int edge) {
+        return targets != null ? targets[edge] : mappedTargets.get(edge);
+    }
+
+    public int weight(int edge) {
+        return weights != null ? weights[edge] : mappedWeights.get(edge);
+    }
+}
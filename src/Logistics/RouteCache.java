@@ -0,0 +1,237 @@
+package Logistics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Bounded LRU cache of computed routes keyed by (start, end).
+// Entries remember the network version they were computed on; a full flush
+// just moves the valid-from version, while road and location removals only
+// drop the entries whose route actually used them. Entries are indexed by
+// every location on their route, so those removals only visit the affected
+// entries. All methods are synchronized; a route computed on a snapshot
+// older than the latest invalidation is never stored.
+public class RouteCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+    // Keys of the entries that start, end or pass through each location
+    private final HashMap<String, HashMap<Key, Entry>> byLocation = new HashMap<>();
+    // Entries computed before this version are stale
+    private long validFrom;
+    // Newest version any invalidation was applied for
+    private long latestInvalidation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public RouteCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity can't be negative");
+        }
+        this.capacity = capacity;
+        // Access order turns the map into an LRU list
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > RouteCache.this.capacity) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Cached result of one query, path is null when there's no route
+    static final class Entry {
+        final String[] path;
+        final long distance;
+        final long version;
+
+        Entry(List<String> path, long distance, long version) {
+            this.path = path == null ? null : path.toArray(new String[0]);
+            this.distance = distance;
+            this.version = version;
+        }
+
+        List<String> copyPath() {
+            if (path == null) {
+                return null;
+            }
+            List<String> copy = new ArrayList<>(path.length);
+            for (String location : path) {
+                copy.add(location);
+            }
+            return copy;
+        }
+
+        boolean usesRoad(String from, String to) {
+            if (path == null) {
+                return false;
+            }
+            for (int i = 0; i + 1 < path.length; i++) {
+                if ((path[i].equals(from) && path[i + 1].equals(to)) ||
+                    (path[i].equals(to) && path[i + 1].equals(from))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Key {
+        private final String start;
+        private final String end;
+
+        Key(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return start.equals(key.start) && end.equals(key.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * start.hashCode() + end.hashCode();
+        }
+    }
+
+    // Returns a still valid entry or null
+    synchronized Entry get(String start, String end) {
+        if (capacity == 0) {
+            return null;
+        }
+        Key key = new Key(start, end);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version < validFrom) {
+            entries.remove(key);
+            unindex(key, entry);
+            invalidations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    synchronized void put(String start, String end, Entry entry) {
+        // It may have been computed before an edit that invalidates it
+        if (capacity > 0 && entry.version >= latestInvalidation) {
+            Key key = new Key(start, end);
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                unindex(key, previous);
+            }
+            // Index first, putting may evict the eldest entry
+            index(key, entry);
+            entries.put(key, entry);
+        }
+    }
+
+    private void index(Key key, Entry entry) {
+        byLocation.computeIfAbsent(key.start, name -> new HashMap<>()).put(key, entry);
+        byLocation.computeIfAbsent(key.end, name -> new HashMap<>()).put(key, entry);
+        if (entry.path != null) {
+            for (String hop : entry.path) {
+                byLocation.computeIfAbsent(hop, name -> new HashMap<>()).put(key, entry);
+            }
+        }
+    }
+
+    private void unindex(Key key, Entry entry) {
+        unindex(key.start, key);
+        unindex(key.end, key);
+        if (entry.path != null) {
+            for (String hop : entry.path) {
+                unindex(hop, key);
+            }
+        }
+    }
+
+    private void unindex(String location, Key key) {
+        HashMap<Key, Entry> keys = byLocation.get(location);
+        if (keys != null && keys.remove(key) != null && keys.isEmpty()) {
+            byLocation.remove(location);
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            unindex(key, entry);
+            invalidations++;
+        }
+    }
+
+    // Marks every entry computed before version as stale in O(1)
+    synchronized void invalidateBefore(long version) {
+        validFrom = Math.max(validFrom, version);
+        latestInvalidation = Math.max(latestInvalidation, version);
+    }
+
+    // Drops routes that start, end or pass through any of the locations
+    synchronized void invalidateLocations(Set<String> locations, long version) {
+        latestInvalidation = Math.max(latestInvalidation, version);
+        for (String location : locations) {
+            HashMap<Key, Entry> keys = byLocation.get(location);
+            if (keys != null) {
+                for (Key key : new ArrayList<>(keys.keySet())) {
+                    remove(key);
+                }
+            }
+        }
+    }
+
+    // Drops routes that drive along a road in either direction
+    synchronized void invalidateRoad(String from, String to, long version) {
+        latestInvalidation = Math.max(latestInvalidation, version);
+        HashMap<Key, Entry> keys = byLocation.get(from);
+        if (keys == null) {
+            return;
+        }
+        List<Key> used = new ArrayList<>();
+        for (Map.Entry<Key, Entry> next : keys.entrySet()) {
+            if (next.getValue().usesRoad(from, to)) {
+                used.add(next.getKey());
+            }
+        }
+        for (Key key : used) {
+            remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        byLocation.clear();
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public int getCapacity() { return capacity; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    public synchronized long getInvalidations() { return invalidations; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Routes cached: %d/%d, Hits: %d, Misses: %d, Evictions: %d, Invalidations: %d",
+                size(), capacity, hits, misses, evictions, invalidations);
+    }
+}
@@ -0,0 +1,7 @@
+package Logistics;
+
+// Lower bound on the road distance between two locations of a RoadGraph.
+// A* only returns shortest routes if the estimate never overestimates.
+public interface RouteHeuristic {
+    long estimate(int from, int to);
+}
@@ -0,0 +1,25 @@
+package Logistics;
+
+// Receives events from route searches, e.g. for tracing or statistics.
+// Searches skip all callbacks when no listener is set. Distance matrices
+// search on several threads at once, so a listener may be called concurrently.
+public interface RouteSearchListener {
+    // Called once before the search starts, target is -1 for full searches
+    default void searchStarted(RoadGraph graph, int source, int target) {
+    }
+
+    // A location was taken off the heap with its final distance
+    default void nodeSettled(int id, long distance) {
+    }
+
+    // A road was examined while expanding a settled location
+    default void edgeRelaxed(int from, int to, long candidateDistance) {
+    }
+
+    // A better distance was found, either as a new heap entry or a decrease-key
+    default void nodeQueued(int id, long distance, boolean decreased) {
+    }
+
+    default void searchFinished(boolean targetReached) {
+    }
+}
@@ -0,0 +1,13 @@
+package Logistics;
+
+// Strategies for point-to-point route queries
+public enum SearchMode {
+    // Plain Dijkstra from the start location
+    DIJKSTRA,
+    // Dijkstra from both ends at once, meeting in the middle
+    BIDIRECTIONAL,
+    // Dijkstra guided by a lower bound on the remaining distance
+    ASTAR,
+    // Upward searches over a preprocessed contraction hierarchy
+    CONTRACTION_HIERARCHY
+}
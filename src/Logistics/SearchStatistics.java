@@ -0,0 +1,57 @@
+package Logistics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Listener that only counts search work, safe to share between threads
+public class SearchStatistics implements RouteSearchListener {
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder nodesSettled = new LongAdder();
+    private final LongAdder edgesRelaxed = new LongAdder();
+    private final LongAdder heapPushes = new LongAdder();
+    private final LongAdder decreaseKeys = new LongAdder();
+
+    @Override
+    public void searchStarted(RoadGraph graph, int source, int target) {
+        searches.increment();
+    }
+
+    @Override
+    public void nodeSettled(int id, long distance) {
+        nodesSettled.increment();
+    }
+
+    @Override
+    public void edgeRelaxed(int from, int to, long candidateDistance) {
+        edgesRelaxed.increment();
+    }
+
+    @Override
+    public void nodeQueued(int id, long distance, boolean decreased) {
+        if (decreased) {
+            decreaseKeys.increment();
+        } else {
+            heapPushes.increment();
+        }
+    }
+
+    public long getSearches() { return searches.sum(); }
+    public long getNodesSettled() { return nodesSettled.sum(); }
+    public long getEdgesRelaxed() { return edgesRelaxed.sum(); }
+    public long getHeapPushes() { return heapPushes.sum(); }
+    public long getDecreaseKeys() { return decreaseKeys.sum(); }
+
+    public void reset() {
+        searches.reset();
+        nodesSettled.reset();
+        edgesRelaxed.reset();
+        heapPushes.reset();
+        decreaseKeys.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Searches: %d, Settled: %d, Relaxed: %d, Pushes: %d, Decrease-keys: %d",
+                getSearches(), getNodesSettled(), getEdgesRelaxed(),
+                getHeapPushes(), getDecreaseKeys());
+    }
+}
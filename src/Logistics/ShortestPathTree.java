@@ -0,0 +1,84 @@
+package Logistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Result of one full Dijkstra run from a source: the distance and the
+// previous location for every location, so any number of destinations can
+// be answered without searching again.
+public class ShortestPathTree {
+    private final RoadGraph graph;
+    private final int source;
+    private final long[] distances;
+    private final int[] previous;
+
+    ShortestPathTree(RoadGraph graph, int source, long[] distances, int[] previous) {
+        this.graph = graph;
+        this.source = source;
+        this.distances = distances;
+        this.previous = previous;
+    }
+
+    // Runs one search from source over the whole graph
+    static ShortestPathTree compute(RoadGraph graph, int source, RouteSearchListener listener) {
+        DijkstraSearch search = DijkstraSearch.get();
+        search.reset(graph, listener);
+        search.run(source, -1);
+
+        int size = graph.size();
+        long[] distances = new long[size];
+        int[] previous = new int[size];
+        for (int id = 0; id < size; id++) {
+            distances[id] = search.distance(id);
+            previous[id] = search.previous(id);
+        }
+        return new ShortestPathTree(graph, source, distances, previous);
+    }
+
+    public String getSource() {
+        return graph.nameOf(source);
+    }
+
+    // Snapshot the tree was computed on
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public boolean isReachable(String target) {
+        int id = graph.idOf(target);
+        return id >= 0 && distances[id] != DijkstraSearch.UNREACHABLE;
+    }
+
+    // Distance from the source, or -1 if target can't be reached
+    public long getDistance(String target) {
+        int id = graph.idOf(target);
+        if (id < 0 || distances[id] == DijkstraSearch.UNREACHABLE) {
+            return -1;
+        }
+        return distances[id];
+    }
+
+    long distance(int id) {
+        return distances[id];
+    }
+
+    int previous(int id) {
+        return previous[id];
+    }
+
+    // Route from the source to target in O(path length), null like findShortestPath
+    // when target is the source itself or can't be reached
+    public List<String> getPath(String target) {
+        int id = graph.idOf(target);
+        if (id < 0 || previous[id] < 0) {
+            return null;
+        }
+        List<String> path = new ArrayList<>();
+        for (; id >= 0; id = previous[id]) {
+            path.add(graph.nameOf(id));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
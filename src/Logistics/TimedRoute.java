@@ -0,0 +1,35 @@
+package Logistics;
+
+import java.util.Collections;
+import java.util.List;
+
+// Fastest route for a given departure time, see LogisticsManager.findFastestRoute.
+// Times are in seconds, counted from midnight of the first day.
+public class TimedRoute {
+    private final List<String> path;
+    private final long departureTime;
+    private final long arrivalTime;
+
+    TimedRoute(List<String> path, long departureTime, long arrivalTime) {
+        this.path = Collections.unmodifiableList(path);
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+    }
+
+    // Locations from the start to the end, just the start if they're the same
+    public List<String> getPath() {
+        return path;
+    }
+
+    public long getDepartureTime() {
+        return departureTime;
+    }
+
+    public long getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public long getTravelTime() {
+        return arrivalTime - departureTime;
+    }
+}
@@ -0,0 +1,117 @@
+package Logistics;
+
+import java.util.Arrays;
+
+// Travel time of one road over the day as a piecewise-linear function:
+// leaving at departureTimes[i] (seconds after midnight) takes travelTimes[i]
+// seconds, departures in between are interpolated and the last point runs
+// on into the first one of the next day. A profile must be FIFO, leaving
+// later never arrives earlier, so a time-dependent search can still settle
+// every location once.
+public final class TravelTimeProfile {
+    public static final int DAY = 86_400;
+
+    private final int[] departureTimes;
+    private final int[] travelTimes;
+
+    public TravelTimeProfile(int[] departureTimes, int[] travelTimes) {
+        if (departureTimes.length == 0 || departureTimes.length != travelTimes.length) {
+            throw new IllegalArgumentException("Need the same number of departure and travel times");
+        }
+        int count = departureTimes.length;
+        for (int i = 0; i < count; i++) {
+            if (departureTimes[i] < 0 || departureTimes[i] >= DAY) {
+                throw new IllegalArgumentException("Departure time outside the day: " + departureTimes[i]);
+            }
+            if (i > 0 && departureTimes[i] <= departureTimes[i - 1]) {
+                throw new IllegalArgumentException("Departure times must be increasing");
+            }
+            if (travelTimes[i] <= 0) {
+                throw new IllegalArgumentException("Travel times must be positive");
+            }
+        }
+        // Arriving from point i must not be later than arriving from point i + 1
+        for (int i = 0; i < count; i++) {
+            int next = (i + 1) % count;
+            long nextDeparture = departureTimes[next] + (next == 0 ? (long) DAY : 0);
+            if ((long) departureTimes[i] + travelTimes[i] > nextDeparture + travelTimes[next]) {
+                throw new IllegalArgumentException("Leaving at " + nextDeparture % DAY +
+                                                   " would arrive earlier than leaving at " + departureTimes[i]);
+            }
+        }
+        this.departureTimes = departureTimes.clone();
+        this.travelTimes = travelTimes.clone();
+    }
+
+    // Same travel time all day
+    public static TravelTimeProfile constant(int travelTime) {
+        return new TravelTimeProfile(new int[] {0}, new int[] {travelTime});
+    }
+
+    public int getPointCount() {
+        return departureTimes.length;
+    }
+
+    // Seconds it takes when leaving at departure, any time on any day
+    public int travelTime(long departure) {
+        return evaluate(departureTimes, travelTimes, 0, departureTimes.length, departure);
+    }
+
+    int departureTime(int point) {
+        return departureTimes[point];
+    }
+
+    int travelTimeAt(int point) {
+        return travelTimes[point];
+    }
+
+    // Evaluates the profile stored in points [first, end) of the two arrays,
+    // shared with the packed profiles of a snapshot
+    static int evaluate(int[] departureTimes, int[] travelTimes, int first, int end, long departure) {
+        int time = (int) Math.floorMod(departure, (long) DAY);
+        int point = Arrays.binarySearch(departureTimes, first, end, time);
+        if (point < 0) {
+            // Last point at or before time
+            point = -point - 2;
+        }
+        long fromTime;
+        long toTime;
+        int fromTravel;
+        int toTravel;
+        if (point < first) {
+            // Before the first point: on the segment coming from yesterday's last point
+            fromTime = departureTimes[end - 1] - (long) DAY;
+            fromTravel = travelTimes[end - 1];
+            toTime = departureTimes[first];
+            toTravel = travelTimes[first];
+        } else if (point == end - 1) {
+            fromTime = departureTimes[point];
+            fromTravel = travelTimes[point];
+            toTime = departureTimes[first] + (long) DAY;
+            toTravel = travelTimes[first];
+        } else {
+            fromTime = departureTimes[point];
+            fromTravel = travelTimes[point];
+            toTime = departureTimes[point + 1];
+            toTravel = travelTimes[point + 1];
+        }
+        // Rounding down keeps the FIFO property of the segment
+        return (int) (fromTravel + Math.floorDiv((long) (toTravel - fromTravel) * (time - fromTime),
+                                                 toTime - fromTime));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof TravelTimeProfile)) {
+            return false;
+        }
+        TravelTimeProfile profile = (TravelTimeProfile) other;
+        return Arrays.equals(departureTimes, profile.departureTimes) &&
+               Arrays.equals(travelTimes, profile.travelTimes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(departureTimes) + Arrays.hashCode(travelTimes);
+    }
+}
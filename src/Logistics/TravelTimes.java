@@ -0,0 +1,91 @@
+package Logistics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Travel time profiles of one snapshot packed into primitive arrays. Equal
+// profiles are stored once, so a network with a million roads and a few
+// road classes costs one int per edge plus the shared points. Roads without
+// a profile drive at the free-flow speed.
+final class TravelTimes {
+    private static final int NO_PROFILE = -1;
+
+    // Index of each edge's profile, NO_PROFILE for free flow
+    private final int[] profileOf;
+    // Profile p has its points in [pointOffsets[p], pointOffsets[p + 1])
+    private final int[] pointOffsets;
+    private final int[] departureTimes;
+    private final int[] travelTimes;
+
+    private TravelTimes(int[] profileOf, int[] pointOffsets, int[] departureTimes, int[] travelTimes) {
+        this.profileOf = profileOf;
+        this.pointOffsets = pointOffsets;
+        this.departureTimes = departureTimes;
+        this.travelTimes = travelTimes;
+    }
+
+    // Packs the profiles set on the locations for the edges of graph, null
+    // if no road has one. Called under the manager's write lock.
+    static TravelTimes compile(RoadGraph graph, Map<String, Location> locations) {
+        int[] profileOf = null;
+        Map<TravelTimeProfile, Integer> pool = new HashMap<>();
+        int[] pointOffsets = new int[] {0};
+        int[] departureTimes = new int[0];
+        int[] travelTimes = new int[0];
+        int points = 0;
+        for (int id = 0; id < graph.size(); id++) {
+            Location location = locations.get(graph.nameOf(id));
+            if (!location.hasTravelTimeProfiles()) {
+                continue;
+            }
+            for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                TravelTimeProfile profile =
+                    location.getTravelTimeProfile(locations.get(graph.nameOf(graph.target(edge))));
+                if (profile == null) {
+                    continue;
+                }
+                if (profileOf == null) {
+                    profileOf = new int[graph.edgeCount()];
+                    Arrays.fill(profileOf, NO_PROFILE);
+                }
+                Integer index = pool.get(profile);
+                if (index == null) {
+                    index = pool.size();
+                    pool.put(profile, index);
+                    int count = profile.getPointCount();
+                    if (points + count > departureTimes.length) {
+                        int capacity = Math.max(points + count, 2 * departureTimes.length);
+                        departureTimes = Arrays.copyOf(departureTimes, capacity);
+                        travelTimes = Arrays.copyOf(travelTimes, capacity);
+                    }
+                    for (int point = 0; point < count; point++) {
+                        departureTimes[points] = profile.departureTime(point);
+                        travelTimes[points++] = profile.travelTimeAt(point);
+                    }
+                    if (index + 1 >= pointOffsets.length) {
+                        pointOffsets = Arrays.copyOf(pointOffsets, 2 * pointOffsets.length);
+                    }
+                    pointOffsets[index + 1] = points;
+                }
+                profileOf[edge] = index;
+            }
+        }
+        if (profileOf == null) {
+            return null;
+        }
+        return new TravelTimes(profileOf, Arrays.copyOf(pointOffsets, pool.size() + 1),
+                               Arrays.copyOf(departureTimes, points), Arrays.copyOf(travelTimes, points));
+    }
+
+    // Seconds to drive along edge when leaving at departure; freeFlowTime is
+    // used when the road has no profile
+    long travelTime(int edge, long departure, long freeFlowTime) {
+        int profile = profileOf[edge];
+        if (profile == NO_PROFILE) {
+            return freeFlowTime;
+        }
+        return TravelTimeProfile.evaluate(departureTimes, travelTimes,
+                                          pointOffsets[profile], pointOffsets[profile + 1], departure);
+    }
+}
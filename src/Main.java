@@ -1,16 +1,37 @@
 package Main;
 
+import Logistics.AlternativeRoute;
+import Logistics.ConsoleTraceListener;
+import Logistics.GraphSnapshotFile;
 import Logistics.LogisticsManager;
+import Logistics.RoadGraph;
+import Utils.Journal;
 import Warehouse.WarehouseItem;
 import Warehouse.WarehouseManager;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class Main {
+    private static final String NETWORK_TEXT_FILE = "src/Data/logistics_network.txt";
+    private static final String NETWORK_SNAPSHOT_FILE = "src/Data/logistics_network.bin";
+    private static final String INVENTORY_FILE = "src/Data/warehouse_inventory.csv";
+    private static final String JOURNAL_FILE = "src/Data/journal.log";
+    // Journal records after which the data files are rewritten and the journal emptied
+    private static final int COMPACTION_THRESHOLD = 1000;
+    // Routes offered in total before a dispatch is given up
+    private static final int MAX_ROUTE_ALTERNATIVES = 5;
     private static final Scanner scanner = new Scanner(System.in);
     private static final WarehouseManager warehouseManager = new WarehouseManager();
     private static final LogisticsManager logisticsManager = new LogisticsManager();
     private static String startingPoint;
+    // Edits since the data files were last written, null if it couldn't be opened
+    private static Journal journal;
+    // Set when the mapped network snapshot fails its background checksum check
+    private static volatile boolean networkSnapshotDamaged;
 
     public static void main(String[] args) {
         loadInitialData();
@@ -30,19 +51,111 @@ public class Main {
 
     // Loads saved data when the program starts
     private static void loadInitialData() {
-        warehouseManager.loadInventoryFromFile("src/Data/warehouse_inventory.csv");
-        logisticsManager.loadLogisticsFromFile("src/Data/logistics_network.txt");
-        
-        // Set starting point to first city in network
-        Set<String> locations = logisticsManager.getAllLocationNames();
-        if (!locations.isEmpty()) {
-            startingPoint = locations.iterator().next();  // Gets first location
+        warehouseManager.loadInventoryFromFile(INVENTORY_FILE);
+        loadNetwork();
+        openJournal();
+
+        // Set starting point to first city in network, in file order
+        RoadGraph graph = logisticsManager.getGraph();
+        if (graph.size() > 0) {
+            startingPoint = graph.nameOf(0);  // Gets first location
             System.out.println("Starting point set to: " + startingPoint);
         } else {
             System.out.println("Warning: No locations loaded. Please add locations first.");
         }
     }
 
+    // Opens the binary snapshot when it's at least as new as the text file,
+    // otherwise parses the text file as before
+    private static void loadNetwork() {
+        File text = new File(NETWORK_TEXT_FILE);
+        Path latest;
+        try {
+            latest = GraphSnapshotFile.latestGeneration(Paths.get(NETWORK_SNAPSHOT_FILE));
+        } catch (IOException e) {
+            latest = null;
+        }
+        if (latest != null && latest.toFile().lastModified() >= text.lastModified() &&
+            logisticsManager.loadNetworkSnapshot(NETWORK_SNAPSHOT_FILE)) {
+            verifyInBackground(latest);
+            return;
+        }
+        logisticsManager.loadLogisticsFromFile(NETWORK_TEXT_FILE);
+    }
+
+    // Checks the snapshot's body while the menu is already usable. A damaged
+    // snapshot is never saved back: the network files are left alone, so the
+    // journal keeps this session's edits, and the text file is marked newer
+    // so the next start parses it instead.
+    private static void verifyInBackground(Path snapshot) {
+        Thread verifier = new Thread(() -> {
+            boolean intact;
+            try {
+                intact = GraphSnapshotFile.verify(snapshot);
+            } catch (IOException e) {
+                intact = false;
+            }
+            if (!intact) {
+                networkSnapshotDamaged = true;
+                new File(NETWORK_TEXT_FILE).setLastModified(System.currentTimeMillis());
+                System.out.println("\nWarning: The network snapshot is damaged. " +
+                                 "Restart to load the network from " + NETWORK_TEXT_FILE + ".");
+            }
+        }, "snapshot-verifier");
+        verifier.setDaemon(true);
+        verifier.start();
+    }
+
+    // Replays the edits a previous run didn't get to save, then records new ones
+    private static void openJournal() {
+        try {
+            journal = new Journal(Paths.get(JOURNAL_FILE));
+        } catch (IOException e) {
+            System.out.println("Warning: Could not open the journal. Changes are only saved on exit.");
+            return;
+        }
+
+        List<String[]> records = journal.getRecoveredRecords();
+        logisticsManager.batch(() -> {
+            for (String[] record : records) {
+                if (!warehouseManager.applyJournalRecord(record) &&
+                    !logisticsManager.applyJournalRecord(record)) {
+                    System.out.println("Skipped unknown journal record: " + record[0]);
+                }
+            }
+        });
+        if (!records.isEmpty()) {
+            System.out.println("Recovered " + records.size() + " unsaved changes from the journal.");
+        }
+        warehouseManager.setJournal(journal);
+        logisticsManager.setJournal(journal);
+    }
+
+    // Writes all data files, each one replaces the old file atomically
+    private static boolean writeDataFiles() {
+        boolean saved = warehouseManager.saveInventoryToFile(INVENTORY_FILE);
+        if (networkSnapshotDamaged) {
+            return false;
+        }
+        saved &= logisticsManager.saveLogisticsToFile(NETWORK_TEXT_FILE);
+        saved &= logisticsManager.saveNetworkSnapshot(NETWORK_SNAPSHOT_FILE);
+        return saved;
+    }
+
+    // Folds the journal into the data files once it has grown long enough
+    private static void compactJournal(boolean force) {
+        if (journal == null || (!force && journal.size() < COMPACTION_THRESHOLD)) {
+            return;
+        }
+        try {
+            // Batches of network edits are appended before they're published,
+            // so the network's write lock is taken around the compaction
+            logisticsManager.compactJournal(Main::writeDataFiles);
+        } catch (IOException e) {
+            System.out.println("Warning: Could not compact the journal.");
+        }
+    }
+
     // Main menu of the program
     private static void mainMenu() {
         while (true) {
@@ -80,6 +193,7 @@ public class Main {
             System.out.print("Choose an option: ");
 
             int choice = getValidatedInput();
+            compactJournal(false);
             switch (choice) {
                 case 1:
                     addItem();
@@ -107,10 +221,13 @@ public class Main {
             System.out.println("3. Add Road");
             System.out.println("4. Remove Location");
             System.out.println("5. Remove Road");
-            System.out.println("6. Back to Main Menu");
+            System.out.println("6. Toggle Route Search Trace");
+            System.out.println("7. Show Disconnected Regions");
+            System.out.println("8. Back to Main Menu");
             System.out.print("Choose an option: ");
 
             int choice = getValidatedInput();
+            compactJournal(false);
             switch (choice) {
                 case 1:
                     logisticsManager.printNetwork();
@@ -128,6 +245,12 @@ public class Main {
                     removeRoad();
                     break;
                 case 6:
+                    toggleSearchTrace();
+                    break;
+                case 7:
+                    showComponents();
+                    break;
+                case 8:
                     return;
                 default:
                     System.out.println("Invalid option. Try again.");
@@ -179,23 +302,51 @@ public class Main {
                 return;
             }
 
-            System.out.println("Route: " + String.join(" -> ", route));
-            System.out.print("Is this route acceptable? (yes/no): ");
-            if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) {
-                System.out.println("Dispatch cancelled.");
-                return;
+            // A turned down route is replaced by the next shortest one
+            List<AlternativeRoute> alternatives = null;
+            Set<List<String>> rejected = new HashSet<>();
+            while (true) {
+                System.out.println("Route: " + String.join(" -> ", route));
+                System.out.print("Is this route acceptable? (yes/no): ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+                    break;
+                }
+                rejected.add(route);
+                if (alternatives == null) {
+                    alternatives = logisticsManager.findAlternativeRoutes(startingPoint, destination,
+                                                                          MAX_ROUTE_ALTERNATIVES);
+                }
+                AlternativeRoute next = null;
+                for (AlternativeRoute alternative : alternatives) {
+                    if (!rejected.contains(alternative.getPath())) {
+                        next = alternative;
+                        break;
+                    }
+                }
+                if (next == null) {
+                    System.out.println("No other routes. Dispatch cancelled.");
+                    return;
+                }
+                route = next.getPath();
+                System.out.println("Alternative route (distance: " + next.getDistance() + ")");
             }
 
             // Get quantity to dispatch
             System.out.print("Enter quantity to dispatch: ");
             int quantity = getValidatedInput();
-            if (quantity <= 0 || quantity > item.getQuantity()) {
+            if (quantity <= 0) {
+                System.out.println("Invalid quantity.");
+                return;
+            }
+            // Checking and taking the stock is one step, so nobody else can take it in between
+            WarehouseManager.Reservation reservation = warehouseManager.tryReserve(item.getId(), quantity);
+            if (reservation == null) {
                 System.out.println("Invalid quantity.");
                 return;
             }
 
             // Update item quantity and confirm
-            item.setQuantity(item.getQuantity() - quantity);
+            warehouseManager.commit(reservation);
             System.out.println("\nDispatched " + quantity + " of " + 
                              item.getName() + " to " + destination + ".");
 
@@ -282,10 +433,43 @@ public class Main {
         }
     }
 
+    // Turns the step-by-step route search output on or off
+    private static void toggleSearchTrace() {
+        if (logisticsManager.getSearchListener() == null) {
+            logisticsManager.setSearchListener(new ConsoleTraceListener());
+            System.out.println("Route search trace enabled.");
+        } else {
+            logisticsManager.setSearchListener(null);
+            System.out.println("Route search trace disabled.");
+        }
+    }
+
+    // Lists the parts of the network that aren't connected to the main one
+    private static void showComponents() {
+        List<List<String>> components = logisticsManager.getComponents();
+        if (components.size() <= 1) {
+            System.out.println("All locations are connected.");
+            return;
+        }
+        System.out.println("The network has " + components.size() + " separate regions. Largest: " +
+                         components.get(0).size() + " locations.");
+        for (List<String> component : components.subList(1, components.size())) {
+            System.out.println("Cut off: " + String.join(", ", component));
+        }
+    }
+
     // Saves everything and exits
     private static void saveAndExit() {
-        warehouseManager.saveInventoryToFile("src/Data/warehouse_inventory.csv");
-        logisticsManager.saveLogisticsToFile("src/Data/logistics_network.txt");
+        if (journal == null) {
+            writeDataFiles();
+        } else {
+            compactJournal(true);
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("Warning: Could not close the journal.");
+            }
+        }
         System.out.println("Data saved. Goodbye!");
     }
 }
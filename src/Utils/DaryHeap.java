@@ -0,0 +1,301 @@
+package Utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+// Min heap where every entry has up to arity children. A wider node makes
+// the tree shallower, so inserts and decrease-key move fewer levels, and
+// the children of a node sit next to each other in memory; 4 is usually
+// the fastest arity. Elements live directly in one array. Entries added
+// with insertWithHandle also get a handle that can later lower the entry
+// or remove it from anywhere in the heap; the handle array is only
+// allocated once the first handle is asked for.
+public class DaryHeap<T> {
+    public static final int DEFAULT_ARITY = 4;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Position of one entry; the index is kept up to date while it moves
+    public static final class Handle<T> {
+        private T element;
+        private int index;
+
+        private Handle(T element, int index) {
+            this.element = element;
+            this.index = index;
+        }
+
+        public T getElement() {
+            return element;
+        }
+    }
+
+    private final int arity;
+    // log2(arity) when arity is a power of two, so parents and children are
+    // found by shifts instead of a division and a multiplication; -1 otherwise
+    private final int shift;
+    private final Comparator<? super T> comparator;
+    private Object[] elements;
+    // Handle of each entry, null for entries inserted without one
+    private Handle<T>[] handles;
+    private int size;
+
+    public DaryHeap(int arity, Comparator<? super T> comparator) {
+        this(arity, comparator, INITIAL_CAPACITY);
+    }
+
+    public DaryHeap(int arity, Comparator<? super T> comparator, int initialCapacity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2");
+        }
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity can't be negative");
+        }
+        this.arity = arity;
+        this.shift = Integer.bitCount(arity) == 1 ? Integer.numberOfTrailingZeros(arity) : -1;
+        this.comparator = comparator;
+        this.elements = new Object[Math.max(initialCapacity, 1)];
+    }
+
+    // Builds the heap from all elements at once in O(n) (Floyd's method)
+    // instead of n inserts at O(log n) each
+    public DaryHeap(int arity, Comparator<? super T> comparator, Collection<? extends T> elements) {
+        this(arity, comparator, elements.size());
+        for (T element : elements) {
+            this.elements[size++] = element;
+        }
+        // Sift down every entry that has children, last parent first
+        for (int index = size < 2 ? -1 : (size - 2) / arity; index >= 0; index--) {
+            siftDown(index);
+        }
+    }
+
+    public int arity() {
+        return arity;
+    }
+
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    // Adds an element
+    public void insert(T element) {
+        grow();
+        elements[size] = element;
+        size++;
+        siftUp(size - 1);
+    }
+
+    // Adds an element and returns a handle to lower or remove it later
+    public Handle<T> insertWithHandle(T element) {
+        grow();
+        if (handles == null) {
+            handles = newHandles(elements.length);
+        }
+        Handle<T> handle = new Handle<>(element, size);
+        elements[size] = element;
+        handles[size] = handle;
+        size++;
+        siftUp(size - 1);
+        return handle;
+    }
+
+    // Smallest element without removing it
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        return (T) elements[0];
+    }
+
+    // Removes and returns the smallest element
+    public T extractMin() {
+        T min = peek();
+        removeAt(0);
+        return min;
+    }
+
+    // Whether the entry is still in this heap
+    public boolean contains(Handle<T> handle) {
+        return handles != null && handle.index >= 0 && handle.index < size && handles[handle.index] == handle;
+    }
+
+    // Replaces an entry's element with one that isn't larger
+    public void decreaseKey(Handle<T> handle, T element) {
+        checkContains(handle);
+        if (comparator.compare(element, handle.element) > 0) {
+            throw new IllegalArgumentException("New element is larger than current one");
+        }
+        handle.element = element;
+        elements[handle.index] = element;
+        siftUp(handle.index);
+    }
+
+    // Removes an entry from anywhere in the heap
+    public void remove(Handle<T> handle) {
+        checkContains(handle);
+        removeAt(handle.index);
+    }
+
+    // Empties the heap and gives back its memory
+    public void clear() {
+        if (handles != null) {
+            for (int i = 0; i < size; i++) {
+                if (handles[i] != null) {
+                    handles[i].index = -1;
+                }
+            }
+        }
+        size = 0;
+        elements = new Object[INITIAL_CAPACITY];
+        handles = null;
+    }
+
+    // Makes room for capacity entries, so filling the heap copies nothing
+    public void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            resize(capacity);
+        }
+    }
+
+    // Shrinks the backing arrays to the current size
+    public void trimToSize() {
+        if (elements.length > Math.max(size, 1)) {
+            resize(Math.max(size, 1));
+        }
+    }
+
+    // Entry at a position of the backing array, in heap order
+    @SuppressWarnings("unchecked")
+    T elementAt(int index) {
+        return (T) elements[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Handle<T>[] newHandles(int capacity) {
+        return (Handle<T>[]) new Handle<?>[capacity];
+    }
+
+    private void checkContains(Handle<T> handle) {
+        if (!contains(handle)) {
+            throw new IllegalArgumentException("Entry not in heap");
+        }
+    }
+
+    private void grow() {
+        if (size == elements.length) {
+            resize(elements.length + (elements.length >> 1) + 1);
+        }
+    }
+
+    private void resize(int capacity) {
+        elements = Arrays.copyOf(elements, capacity);
+        if (handles != null) {
+            handles = Arrays.copyOf(handles, capacity);
+        }
+    }
+
+    private void removeAt(int index) {
+        size--;
+        if (handles != null) {
+            if (handles[index] != null) {
+                handles[index].index = -1;
+            }
+            handles[index] = handles[size];
+            handles[size] = null;
+        }
+        elements[index] = elements[size];
+        // Cleared so the removed element can be garbage collected
+        elements[size] = null;
+        if (index < size) {
+            // The last entry takes the hole and moves whichever way it has to
+            if (siftUp(index) == index) {
+                siftDown(index);
+            }
+        }
+        // A drained heap gives memory back instead of keeping its peak size
+        if (size < elements.length >> 2 && elements.length > INITIAL_CAPACITY) {
+            resize(Math.max(elements.length >> 1, INITIAL_CAPACITY));
+        }
+    }
+
+    // Moves the entry at index up until its parent isn't larger and returns
+    // where it ended. Parents move down into the hole, so the entry itself
+    // is written only once.
+    @SuppressWarnings("unchecked")
+    private int siftUp(int index) {
+        T element = (T) elements[index];
+        Handle<T> handle = handles == null ? null : handles[index];
+        while (index > 0) {
+            int parentIdx = shift >= 0 ? (index - 1) >>> shift : (index - 1) / arity;
+            Object parent = elements[parentIdx];
+            if (comparator.compare(element, (T) parent) >= 0) {
+                break;
+            }
+            elements[index] = parent;
+            if (handles != null) {
+                moveHandle(parentIdx, index);
+            }
+            index = parentIdx;
+        }
+        elements[index] = element;
+        if (handles != null) {
+            placeHandle(handle, index);
+        }
+        return index;
+    }
+
+    // Moves the entry at index down until none of its children is smaller
+    @SuppressWarnings("unchecked")
+    private void siftDown(int index) {
+        T element = (T) elements[index];
+        Handle<T> handle = handles == null ? null : handles[index];
+        while (true) {
+            int first = shift >= 0 ? (index << shift) + 1 : index * arity + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + arity, size);
+            int child = first;
+            T smallest = (T) elements[first];
+            for (int i = first + 1; i < last; i++) {
+                T candidate = (T) elements[i];
+                if (comparator.compare(candidate, smallest) < 0) {
+                    child = i;
+                    smallest = candidate;
+                }
+            }
+            if (comparator.compare(element, smallest) <= 0) {
+                break;
+            }
+            elements[index] = smallest;
+            if (handles != null) {
+                moveHandle(child, index);
+            }
+            index = child;
+        }
+        elements[index] = element;
+        if (handles != null) {
+            placeHandle(handle, index);
+        }
+    }
+
+    private void moveHandle(int from, int to) {
+        Handle<T> moved = handles[from];
+        handles[to] = moved;
+        if (moved != null) {
+            moved.index = to;
+        }
+    }
+
+    private void placeHandle(Handle<T> handle, int index) {
+        handles[index] = handle;
+        if (handle != null) {
+            handle.index = index;
+        }
+    }
+}
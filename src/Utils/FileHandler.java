@@ -1,7 +1,11 @@
 package Utils;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class FileHandler {
     // Reads all lines from a file into a list
@@ -31,6 +35,46 @@ public class FileHandler {
         }
     }
 
+    // Writes a file through a temporary file that is synced and then renamed
+    // over the original, so a crash leaves either the old or the new version.
+    // Returns false if the file couldn't be written.
+    public static boolean writeAtomically(String filename, Consumer<PrintWriter> content) {
+        Path target = Paths.get(filename);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp.toFile());
+                 PrintWriter writer = new PrintWriter(new BufferedWriter(
+                     new OutputStreamWriter(out, StandardCharsets.UTF_8)))) {
+                content.accept(writer);
+                writer.flush();
+                if (writer.checkError()) {
+                    throw new IOException("Write failed");
+                }
+                out.getFD().sync();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(target);
+            return true;
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // The next save overwrites it anyway
+            }
+            return false;
+        }
+    }
+
+    // Makes a rename durable, not every platform can open a directory
+    public static void syncDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort, the rename itself is already atomic
+        }
+    }
+
     // Splits a CSV line into its parts
     public static Map<String, String> parseCSVLine(String line) {
         Map<String, String> values = new HashMap<>();
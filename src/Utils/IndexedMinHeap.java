@@ -0,0 +1,212 @@
+package Utils;
+
+import java.util.Arrays;
+
+// Min heap over int keys (0 .. capacity - 1) with long priorities.
+// Every key is in the heap at most once, so priorities can be lowered in
+// place instead of inserting duplicates. Nodes have 2^arityBits children,
+// 4 by default, for the same reasons as in DaryHeap.
+public class IndexedMinHeap {
+    public static final int DEFAULT_ARITY_BITS = 2;
+
+    // log2 of the number of children per node
+    private final int arityBits;
+    // Keys in heap order
+    private int[] heap;
+    // Priority of each key, only valid while the key is in the heap
+    private long[] priorities;
+    // Position of each key inside heap, -1 when absent
+    private int[] positions;
+    private int size;
+
+    public IndexedMinHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY_BITS);
+    }
+
+    public IndexedMinHeap(int capacity, int arityBits) {
+        if (arityBits < 1 || arityBits > 4) {
+            throw new IllegalArgumentException("Arity bits must be between 1 and 4");
+        }
+        this.arityBits = arityBits;
+        heap = new int[capacity];
+        priorities = new long[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+        size = 0;
+    }
+
+    // Makes room for keys up to capacity - 1, keeping current contents
+    public void ensureCapacity(int capacity) {
+        if (capacity <= positions.length) {
+            return;
+        }
+        int oldCapacity = positions.length;
+        heap = Arrays.copyOf(heap, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldCapacity, capacity, -1);
+    }
+
+    public int capacity() {
+        return positions.length;
+    }
+
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+
+    public boolean contains(int key) {
+        return positions[key] >= 0;
+    }
+
+    public long priorityOf(int key) {
+        if (positions[key] < 0) {
+            throw new IllegalArgumentException("Key not in heap: " + key);
+        }
+        return priorities[key];
+    }
+
+    // Adds a key that isn't in the heap yet
+    public void insert(int key, long priority) {
+        if (positions[key] >= 0) {
+            throw new IllegalArgumentException("Key already in heap: " + key);
+        }
+        heap[size] = key;
+        positions[key] = size;
+        priorities[key] = priority;
+        siftUp(size);
+        size++;
+    }
+
+    // Lowers the priority of a key that is already in the heap
+    public void decreaseKey(int key, long priority) {
+        int index = positions[key];
+        if (index < 0) {
+            throw new IllegalArgumentException("Key not in heap: " + key);
+        }
+        if (priority > priorities[key]) {
+            throw new IllegalArgumentException("New priority is larger than current one");
+        }
+        priorities[key] = priority;
+        siftUp(index);
+    }
+
+    // Inserts the key or lowers its priority, returns false if nothing changed
+    public boolean insertOrDecrease(int key, long priority) {
+        int index = positions[key];
+        if (index < 0) {
+            insert(key, priority);
+            return true;
+        }
+        if (priority >= priorities[key]) {
+            return false;
+        }
+        priorities[key] = priority;
+        siftUp(index);
+        return true;
+    }
+
+    // Key with the smallest priority, without removing it
+    public int peekMin() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        return heap[0];
+    }
+
+    public long peekPriority() {
+        return priorities[peekMin()];
+    }
+
+    // Removes and returns the key with the smallest priority
+    public int extractMin() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty");
+        }
+        int min = heap[0];
+        positions[min] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    // Removes a key from anywhere in the heap
+    public void remove(int key) {
+        int index = positions[key];
+        if (index < 0) {
+            throw new IllegalArgumentException("Key not in heap: " + key);
+        }
+        positions[key] = -1;
+        size--;
+        if (index < size) {
+            // The last entry takes the hole and moves whichever way it has to
+            int moved = heap[size];
+            heap[index] = moved;
+            positions[moved] = index;
+            siftUp(index);
+            if (positions[moved] == index) {
+                siftDown(index);
+            }
+        }
+    }
+
+    // Empties the heap in O(size) so it can be reused for the next search
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    // Moves the entry at index up until its parent is smaller
+    private void siftUp(int index) {
+        int key = heap[index];
+        long priority = priorities[key];
+        while (index > 0) {
+            int parentIdx = (index - 1) >>> arityBits;
+            int parentKey = heap[parentIdx];
+            if (priority >= priorities[parentKey]) {
+                break;
+            }
+            heap[index] = parentKey;
+            positions[parentKey] = index;
+            index = parentIdx;
+        }
+        heap[index] = key;
+        positions[key] = index;
+    }
+
+    // Moves the entry at index down until all of its children are larger
+    private void siftDown(int index) {
+        int key = heap[index];
+        long priority = priorities[key];
+        while (true) {
+            int first = (index << arityBits) + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + (1 << arityBits), size);
+            int child = first;
+            long smallest = priorities[heap[first]];
+            for (int i = first + 1; i < last; i++) {
+                long candidate = priorities[heap[i]];
+                if (candidate < smallest) {
+                    child = i;
+                    smallest = candidate;
+                }
+            }
+            if (priority <= smallest) {
+                break;
+            }
+            int childKey = heap[child];
+            heap[index] = childKey;
+            positions[childKey] = index;
+            index = child;
+        }
+        heap[index] = key;
+        positions[key] = index;
+    }
+}
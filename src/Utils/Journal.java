@@ -0,0 +1,270 @@
+package Utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+
+// Append-only log of edits made since the last saved snapshot.
+// Every record is one line "crc<TAB>field<TAB>field..." so a torn write at
+// the end of the file is detected and dropped when the journal is opened.
+// append() only copies the record into memory; sync() writes and fsyncs
+// everything appended so far, and threads calling sync() while a write is in
+// progress are covered together by the next one (group commit).
+public class Journal implements Closeable {
+    private final FileChannel channel;
+    private final List<String[]> recovered;
+
+    // Records appended but not written yet, swapped with spare on every write
+    private byte[] pending = new byte[4096];
+    private byte[] spare = new byte[4096];
+    private int pendingLength;
+    private long appended;
+    private long durable;
+    private boolean writing;
+    // A failed write leaves the journal unusable until it's reopened
+    private IOException failure;
+    // Records since the last compaction
+    private int size;
+
+    // Opens or creates the journal, reading back the records it holds
+    public Journal(Path path) throws IOException {
+        this.recovered = new ArrayList<>();
+        long valid = 0;
+        if (Files.exists(path)) {
+            byte[] data = Files.readAllBytes(path);
+            int start = 0;
+            for (int i = 0; i < data.length; i++) {
+                if (data[i] != '\n') {
+                    continue;
+                }
+                String[] record = decode(data, start, i);
+                if (record == null) {
+                    break;
+                }
+                recovered.add(record);
+                start = i + 1;
+            }
+            valid = start;
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Drops a torn or corrupted tail so new records follow valid ones
+        if (channel.size() > valid) {
+            channel.truncate(valid);
+            channel.force(true);
+        }
+        channel.position(valid);
+        this.size = recovered.size();
+    }
+
+    // Records that were in the file when it was opened, oldest first
+    public List<String[]> getRecoveredRecords() {
+        return recovered;
+    }
+
+    // Number of records written since the journal was last compacted
+    public synchronized int size() {
+        return size;
+    }
+
+    // Adds a record in memory and returns its sequence number, cheap
+    // enough to call while holding other locks
+    public synchronized long append(String... fields) {
+        byte[] line = encode(fields);
+        if (pendingLength + line.length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + line.length));
+        }
+        System.arraycopy(line, 0, pending, pendingLength, line.length);
+        pendingLength += line.length;
+        size++;
+        return ++appended;
+    }
+
+    // Blocks until every record appended so far is on disk
+    public void sync() throws IOException {
+        byte[] batch;
+        int length;
+        long upTo;
+        synchronized (this) {
+            long target = appended;
+            while (true) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (durable >= target) {
+                    return;
+                }
+                if (!writing) {
+                    break;
+                }
+                // Someone else is writing, their fsync or the next one covers us
+                waitForWriter();
+            }
+            writing = true;
+            batch = pending;
+            length = pendingLength;
+            upTo = appended;
+            pending = spare;
+            pendingLength = 0;
+        }
+
+        IOException error = null;
+        try {
+            write(batch, length);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            writing = false;
+            spare = batch;
+            if (error == null) {
+                durable = upTo;
+            } else {
+                failure = error;
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // Writes a snapshot of everything recorded so far and empties the journal.
+    // Appends wait while this runs, so no edit can slip in between the
+    // snapshot and the truncation. Owners that record an edit before it is
+    // visible to writeSnapshot must also hold their own lock around this.
+    // If writeSnapshot returns false the journal is kept as it is.
+    public synchronized boolean compact(BooleanSupplier writeSnapshot) throws IOException {
+        while (writing) {
+            waitForWriter();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        write(pending, pendingLength);
+        pendingLength = 0;
+        durable = appended;
+        if (!writeSnapshot.getAsBoolean()) {
+            return false;
+        }
+        // A crash before this point replays records the snapshot already has,
+        // which is harmless because every record sets an absolute value
+        channel.truncate(0);
+        channel.force(true);
+        size = 0;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void write(byte[] data, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private void waitForWriter() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the journal");
+        }
+    }
+
+    // Tabs, newlines and backslashes inside fields are escaped
+    private static byte[] encode(String[] fields) {
+        StringBuilder body = new StringBuilder();
+        for (String field : fields) {
+            body.append('\t');
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c == '\t') {
+                    body.append("\\t");
+                } else if (c == '\n') {
+                    body.append("\\n");
+                } else if (c == '\r') {
+                    body.append("\\r");
+                } else if (c == '\\') {
+                    body.append("\\\\");
+                } else {
+                    body.append(c);
+                }
+            }
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(bytes.length + 10);
+        line.writeBytes(String.format("%08x", crc.getValue()).getBytes(StandardCharsets.US_ASCII));
+        line.writeBytes(bytes);
+        line.write('\n');
+        return line.toByteArray();
+    }
+
+    // Returns the fields of a line, or null if it's damaged
+    private static String[] decode(byte[] data, int start, int end) {
+        if (end - start < 8) {
+            return null;
+        }
+        long expected;
+        try {
+            expected = Long.parseLong(new String(data, start, 8, StandardCharsets.US_ASCII), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, start + 8, end - start - 8);
+        if (crc.getValue() != expected) {
+            return null;
+        }
+
+        String body = new String(data, start + 8, end - start - 8, StandardCharsets.UTF_8);
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = null;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\t') {
+                if (field != null) {
+                    fields.add(field.toString());
+                }
+                field = new StringBuilder();
+            } else if (field == null) {
+                return null;
+            } else if (c == '\\' && i + 1 < body.length()) {
+                char next = body.charAt(++i);
+                field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                field.append(c);
+            }
+        }
+        if (field != null) {
+            fields.add(field.toString());
+        }
+        return fields.toArray(new String[0]);
+    }
+}
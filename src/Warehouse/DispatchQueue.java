@@ -0,0 +1,114 @@
+package Warehouse;
+
+import Utils.IndexedMinHeap;
+
+import java.util.Arrays;
+
+// Items in dispatch order: highest priority first and, among equal
+// priorities, the item that was added first. Only items with unreserved
+// stock are queued, so the head is always something that can be dispatched.
+// Stock changes are lock-free and only call update() when an item runs out
+// or comes back; update() re-reads the stock under the queue's own lock, so
+// concurrent changes settle on the right membership whatever order they
+// arrive in.
+final class DispatchQueue {
+    // Sequences above this no longer fit in a key, see key()
+    private static final long MAX_SEQUENCE = (1L << 31) - 1;
+
+    // Slots of removed items are handed out again, so the arrays only grow
+    // with the number of items held at once, not with every item ever added
+    private WarehouseItem[] items = new WarehouseItem[16];
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    // Insertion order, the tie-breaker between equal priorities
+    private long nextSequence;
+    private final IndexedMinHeap heap = new IndexedMinHeap(16);
+
+    synchronized void add(WarehouseItem item) {
+        if (nextSequence > MAX_SEQUENCE) {
+            renumber();
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == items.length) {
+                items = Arrays.copyOf(items, items.length * 2);
+                heap.ensureCapacity(items.length);
+            }
+            slot = slotCount++;
+        }
+        item.dispatchSlot = slot;
+        item.dispatchSequence = nextSequence++;
+        item.dispatchQueue = this;
+        items[slot] = item;
+        update(item);
+    }
+
+    // Queues or drops an item after its stock changed
+    synchronized void update(WarehouseItem item) {
+        int slot = item.dispatchSlot;
+        if (slot < 0 || items[slot] != item) {
+            return;
+        }
+        boolean queued = heap.contains(slot);
+        int available = item.getAvailable();
+        if (available > 0 && !queued) {
+            heap.insert(slot, key(item));
+        } else if (available <= 0 && queued) {
+            heap.remove(slot);
+        }
+    }
+
+    synchronized void remove(WarehouseItem item) {
+        int slot = item.dispatchSlot;
+        if (slot < 0) {
+            return;
+        }
+        if (heap.contains(slot)) {
+            heap.remove(slot);
+        }
+        items[slot] = null;
+        item.dispatchSlot = -1;
+        item.dispatchQueue = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    // Next item to dispatch, null if nothing is in stock
+    synchronized WarehouseItem peek() {
+        return heap.isEmpty() ? null : items[heap.peekMin()];
+    }
+
+    // Number of items with stock
+    synchronized int size() {
+        return heap.size();
+    }
+
+    // Numbers the held items from 0 again in the same order once the
+    // sequence runs out of key bits, and requeues them under the new keys
+    private void renumber() {
+        WarehouseItem[] held = new WarehouseItem[slotCount - freeCount];
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (items[slot] != null) {
+                held[count++] = items[slot];
+            }
+        }
+        Arrays.sort(held, (a, b) -> Long.compare(a.dispatchSequence, b.dispatchSequence));
+        heap.clear();
+        for (nextSequence = 0; nextSequence < count; nextSequence++) {
+            WarehouseItem item = held[(int) nextSequence];
+            item.dispatchSequence = nextSequence;
+            update(item);
+        }
+    }
+
+    // Smaller is dispatched first: inverted priority above the sequence
+    private static long key(WarehouseItem item) {
+        return ((long) Integer.MAX_VALUE - item.getPriority()) << 31 | item.dispatchSequence;
+    }
+}
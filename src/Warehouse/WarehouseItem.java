@@ -1,16 +1,26 @@
 package Warehouse;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class WarehouseItem implements Comparable<WarehouseItem> {
     private String id;
     private String name;
     private int priority;
-    private int quantity;
+    // Quantity on hand in the high 32 bits and the reserved part of it in
+    // the low 32 bits, so both change together with one compare-and-set
+    // and can be read without locking
+    private final AtomicLong stock;
+    // Position in the manager's dispatch queue, kept in step with stock
+    int dispatchSlot = -1;
+    // When the item joined the queue, earlier items go first on equal priority
+    long dispatchSequence;
+    volatile DispatchQueue dispatchQueue;
 
     public WarehouseItem(String id, String name, int priority, int quantity) {
         this.id = id;
         this.name = name;
         this.priority = priority;
-        this.quantity = quantity;
+        this.stock = new AtomicLong(pack(quantity, 0));
     }
 
     // Basic getters for item properties
@@ -26,13 +36,98 @@ public class WarehouseItem implements Comparable<WarehouseItem> {
         return priority;
     }
 
+    // Quantity on hand, including reserved units
     public int getQuantity() {
-        return quantity;
+        return quantity(stock.get());
+    }
+
+    // Units held by reservations that aren't committed or released yet
+    public int getReserved() {
+        return reserved(stock.get());
     }
 
-    // Used when updating stock levels
+    // Units that can still be reserved
+    public int getAvailable() {
+        long current = stock.get();
+        return quantity(current) - reserved(current);
+    }
+
+    // Used when updating stock levels, can't go below what is reserved
     public void setQuantity(int quantity) {
-        this.quantity = quantity;
+        long current;
+        do {
+            current = stock.get();
+            if (quantity < reserved(current)) {
+                throw new IllegalStateException("Can't set quantity below the " +
+                                                reserved(current) + " reserved units");
+            }
+        } while (!stock.compareAndSet(current, pack(quantity, reserved(current))));
+        queueChanged();
+    }
+
+    // Adds units to the quantity on hand
+    void addQuantity(int amount) {
+        long current;
+        do {
+            current = stock.get();
+        } while (!stock.compareAndSet(current, pack(quantity(current) + amount, reserved(current))));
+        queueChanged();
+    }
+
+    // Reserves units if that many are available, never blocks
+    boolean tryReserve(int amount) {
+        long current;
+        int available;
+        do {
+            current = stock.get();
+            available = quantity(current) - reserved(current);
+            if (available < amount) {
+                return false;
+            }
+        } while (!stock.compareAndSet(current, pack(quantity(current), reserved(current) + amount)));
+        // Only running out changes whether the item can be dispatched
+        if (available == amount) {
+            queueChanged();
+        }
+        return true;
+    }
+
+    // Takes reserved units out of stock
+    void commitReserved(int amount) {
+        long current;
+        do {
+            current = stock.get();
+        } while (!stock.compareAndSet(current, pack(quantity(current) - amount, reserved(current) - amount)));
+    }
+
+    // Makes reserved units available again
+    void releaseReserved(int amount) {
+        long current;
+        do {
+            current = stock.get();
+        } while (!stock.compareAndSet(current, pack(quantity(current), reserved(current) - amount)));
+        if (quantity(current) == reserved(current)) {
+            queueChanged();
+        }
+    }
+
+    private void queueChanged() {
+        DispatchQueue queue = dispatchQueue;
+        if (queue != null) {
+            queue.update(this);
+        }
+    }
+
+    private static long pack(int quantity, int reserved) {
+        return (long) quantity << 32 | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int quantity(long stock) {
+        return (int) (stock >> 32);
+    }
+
+    private static int reserved(long stock) {
+        return (int) stock;
     }
 
     // Needed for sorting items by priority
@@ -45,6 +140,6 @@ public class WarehouseItem implements Comparable<WarehouseItem> {
     @Override
     public String toString() {
         return String.format("ID: %s, Name: %s, Priority: %d, Quantity: %d",
-                id, name, priority, quantity);
+                id, name, priority, getQuantity());
     }
-} 
\ No newline at end of file
+}
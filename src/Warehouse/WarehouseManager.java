@@ -1,53 +1,290 @@
 package Warehouse;
 
+import Utils.FileHandler;
+import Utils.Journal;
+
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Safe to share between threads. Lookups and stock reads never lock;
+// reserving, committing and releasing stock are compare-and-set operations
+// on the item itself. Adding and removing items is serialized on a write
+// lock, and journaled changes to one item are serialized on that item.
 public class WarehouseManager {
-    // List to store all items
-    private List<WarehouseItem> inventory;
+    // All items by ID
+    private Map<String, WarehouseItem> inventory;
+    // Same items keyed by lower-case name, names are case-insensitive
+    private Map<String, WarehouseItem> itemsByName;
+    // Items with stock, highest priority first
+    private final DispatchQueue dispatchQueue;
+    private final Object writeLock = new Object();
+    // Highest numeric ID handed out or loaded so far, guarded by writeLock
+    private int lastId;
+    // Optional log that every stock change is recorded in
+    private volatile Journal journal;
 
     public WarehouseManager() {
-        this.inventory = new ArrayList<>();
+        this.inventory = new ConcurrentHashMap<>();
+        this.itemsByName = new ConcurrentHashMap<>();
+        this.dispatchQueue = new DispatchQueue();
+    }
+
+    // Units of one item set aside for a dispatch that isn't finished yet
+    public static final class Reservation {
+        private final WarehouseItem item;
+        private final int quantity;
+        private boolean done;
+
+        private Reservation(WarehouseItem item, int quantity) {
+            this.item = item;
+            this.quantity = quantity;
+        }
+
+        public WarehouseItem getItem() {
+            return item;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        // Marks the reservation as used, it can only be committed or released once
+        private synchronized void finish() {
+            if (done) {
+                throw new IllegalStateException("Reservation was already committed or released");
+            }
+            done = true;
+        }
     }
 
     // Creates a new ID for items (001, 002, etc.)
     private String generateNextId() {
-        int maxId = inventory.stream()
-            .map(item -> Integer.parseInt(item.getId()))
-            .max(Integer::compareTo)
-            .orElse(0);
-        return String.format("%03d", maxId + 1);
+        String id;
+        do {
+            id = String.format("%03d", ++lastId);
+        } while (inventory.containsKey(id));
+        return id;
+    }
+
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // Adds an item to both indexes, returns false if its ID or name is taken
+    private boolean index(WarehouseItem item) {
+        String key = nameKey(item.getName());
+        if (inventory.containsKey(item.getId()) || itemsByName.containsKey(key)) {
+            return false;
+        }
+        // Queued first so the item has its slot before other threads can see it
+        dispatchQueue.add(item);
+        inventory.put(item.getId(), item);
+        itemsByName.put(key, item);
+        try {
+            lastId = Math.max(lastId, Integer.parseInt(item.getId()));
+        } catch (NumberFormatException e) {
+            // Non-numeric IDs don't take part in numbering
+        }
+        return true;
     }
 
     // Adds new item or updates quantity if it exists
     public void addItem(String name, int priority, int quantity) {
-        if (itemExists(name)) {
-            // If item exists, just update its quantity
-            WarehouseItem existingItem = inventory.stream()
-                .filter(item -> item.getName().equalsIgnoreCase(name))
-                .findFirst()
-                .get();
-            System.out.println("Item already exists with priority " + 
-                             existingItem.getPriority() + 
-                             ". Adding " + quantity + " to existing quantity.");
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-        } else {
-            // Create new item with new ID
-            String id = generateNextId();
-            inventory.add(new WarehouseItem(id, name, priority, quantity));
+        synchronized (writeLock) {
+            WarehouseItem existingItem = itemsByName.get(nameKey(name));
+            if (existingItem != null) {
+                // If item exists, just update its quantity
+                System.out.println("Item already exists with priority " + 
+                                 existingItem.getPriority() + 
+                                 ". Adding " + quantity + " to existing quantity.");
+                synchronized (existingItem) {
+                    existingItem.addQuantity(quantity);
+                    record(existingItem);
+                }
+            } else {
+                // Create new item with new ID
+                String id = generateNextId();
+                WarehouseItem item = new WarehouseItem(id, name, priority, quantity);
+                index(item);
+                record(item);
+            }
+        }
+        commit();
+    }
+
+    // Sets the stock of an item, e.g. after a stock count
+    public void updateQuantity(WarehouseItem item, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity can't be negative");
+        }
+        synchronized (item) {
+            item.setQuantity(quantity);
+            recordQuantity(item);
+        }
+        commit();
+    }
+
+    // Sets aside units of an item for a dispatch. Returns null if fewer than
+    // quantity units are available; never blocks, so pick stations on many
+    // threads can't oversell the same stock.
+    public Reservation tryReserve(String id, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        WarehouseItem item = findById(id);
+        if (item == null) {
+            throw new IllegalArgumentException("Item not found: " + id);
+        }
+        return item.tryReserve(quantity) ? new Reservation(item, quantity) : null;
+    }
+
+    // Takes the reserved units out of stock for good
+    public void commit(Reservation reservation) {
+        reservation.finish();
+        WarehouseItem item = reservation.item;
+        synchronized (item) {
+            item.commitReserved(reservation.quantity);
+            recordQuantity(item);
+        }
+        commit();
+    }
+
+    // Commits many reservations with a single journal sync at the end
+    public void commit(Collection<Reservation> reservations) {
+        for (Reservation reservation : reservations) {
+            reservation.finish();
+            WarehouseItem item = reservation.item;
+            synchronized (item) {
+                item.commitReserved(reservation.quantity);
+                recordQuantity(item);
+            }
+        }
+        commit();
+    }
+
+    // Gives the reserved units back, e.g. when a dispatch is cancelled
+    public void release(Reservation reservation) {
+        reservation.finish();
+        reservation.item.releaseReserved(reservation.quantity);
+    }
+
+    // Takes an item out of the warehouse
+    public WarehouseItem removeItem(String name) {
+        WarehouseItem item;
+        synchronized (writeLock) {
+            item = findByName(name);
+            if (item == null) {
+                throw new IllegalArgumentException("Item not found: " + name);
+            }
+            unindex(item);
+            Journal journal = this.journal;
+            if (journal != null) {
+                journal.append("remove-item", item.getId());
+            }
+        }
+        commit();
+        return item;
+    }
+
+    private void unindex(WarehouseItem item) {
+        inventory.remove(item.getId());
+        itemsByName.remove(nameKey(item.getName()));
+        dispatchQueue.remove(item);
+    }
+
+    // Records every later stock change in the journal, null turns it off
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    // Re-applies a journal record written by this class, returns false for
+    // records that belong to someone else. Records hold absolute values, so
+    // applying one the inventory file already contains changes nothing.
+    public boolean applyJournalRecord(String[] record) {
+        synchronized (writeLock) {
+            return applyRecord(record);
+        }
+    }
+
+    private boolean applyRecord(String[] record) {
+        switch (record[0]) {
+            case "item": {
+                WarehouseItem item = findById(record[1]);
+                int quantity = Integer.parseInt(record[4]);
+                if (item == null) {
+                    index(new WarehouseItem(record[1], record[2], Integer.parseInt(record[3]), quantity));
+                } else {
+                    item.setQuantity(quantity);
+                }
+                return true;
+            }
+            case "quantity": {
+                WarehouseItem item = findById(record[1]);
+                if (item != null) {
+                    item.setQuantity(Integer.parseInt(record[2]));
+                }
+                return true;
+            }
+            case "remove-item": {
+                WarehouseItem item = findById(record[1]);
+                if (item != null) {
+                    unindex(item);
+                }
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    // Looks an item up by its ID, null if there's none
+    public WarehouseItem findById(String id) {
+        return inventory.get(id);
+    }
+
+    // Looks an item up by name ignoring case, null if there's none
+    public WarehouseItem findByName(String name) {
+        return itemsByName.get(nameKey(name));
+    }
+
+    // Journals the whole item, called while holding the item's lock so the
+    // records of one item are in the same order as its changes
+    private void record(WarehouseItem item) {
+        Journal journal = this.journal;
+        if (journal != null) {
+            journal.append("item", item.getId(), item.getName(),
+                           String.valueOf(item.getPriority()), String.valueOf(item.getQuantity()));
+        }
+    }
+
+    private void recordQuantity(WarehouseItem item) {
+        Journal journal = this.journal;
+        if (journal != null) {
+            journal.append("quantity", item.getId(), String.valueOf(item.getQuantity()));
+        }
+    }
+
+    // Makes the recorded changes durable before returning to the caller
+    private void commit() {
+        Journal journal = this.journal;
+        if (journal != null) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                System.out.println("Warning: Could not write the change to the journal.");
+            }
         }
     }
 
     // Checks if warehouse already has this item
     public boolean itemExists(String name) {
-        return inventory.stream()
-            .anyMatch(item -> item.getName().equalsIgnoreCase(name));
+        return itemsByName.containsKey(nameKey(name));
     }
 
     // Shows all items in stock
     public void viewInventory() {
-        inventory.stream()
+        inventory.values().stream()
             .sorted(Comparator.comparing(WarehouseItem::getId))
             .forEach(System.out::println);
     }
@@ -60,16 +297,17 @@ public class WarehouseManager {
 
         WarehouseItem itemToDispatch;
         if (name.isEmpty()) {
-            // Get highest priority item
-            itemToDispatch = inventory.stream()
-                .max(Comparator.comparingInt(WarehouseItem::getPriority))
-                .orElseThrow(() -> new IllegalStateException("No items available"));
+            // Get highest priority item that is still in stock
+            itemToDispatch = dispatchQueue.peek();
+            if (itemToDispatch == null) {
+                throw new IllegalStateException("No items available");
+            }
         } else {
             // Get specific item by name
-            itemToDispatch = inventory.stream()
-                .filter(item -> item.getName().equalsIgnoreCase(name))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Item not found: " + name));
+            itemToDispatch = findByName(name);
+            if (itemToDispatch == null) {
+                throw new IllegalArgumentException("Item not found: " + name);
+            }
         }
 
         return itemToDispatch;
@@ -91,7 +329,11 @@ public class WarehouseManager {
                     String name = parts[1];
                     int priority = Integer.parseInt(parts[2]);
                     int quantity = Integer.parseInt(parts[3]);
-                    inventory.add(new WarehouseItem(id, name, priority, quantity));
+                    synchronized (writeLock) {
+                        if (!index(new WarehouseItem(id, name, priority, quantity))) {
+                            System.out.println("Warning: Skipped duplicate item " + id + " (" + name + ").");
+                        }
+                    }
                 }
             }
         } catch (IOException e) {
@@ -99,19 +341,24 @@ public class WarehouseManager {
         }
     }
 
-    // Saves inventory to CSV file
-    public void saveInventoryToFile(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+    // Saves inventory to CSV file, replacing the old file only once the new one is complete
+    public boolean saveInventoryToFile(String filename) {
+        boolean saved = FileHandler.writeAtomically(filename, writer -> {
             writer.println("ID,Name,Priority,Quantity");
-            for (WarehouseItem item : inventory) {
+            // Items are written in the order they were added, which keeps dispatch ties stable
+            List<WarehouseItem> items = new ArrayList<>(inventory.values());
+            items.sort(Comparator.comparingLong(item -> item.dispatchSequence));
+            for (WarehouseItem item : items) {
                 writer.printf("%s,%s,%d,%d%n",
                     item.getId(),
                     item.getName(),
                     item.getPriority(),
                     item.getQuantity());
             }
-        } catch (IOException e) {
+        });
+        if (!saved) {
             System.out.println("Error: Could not save inventory to file.");
         }
+        return saved;
     }
 }
\ No newline at end of file